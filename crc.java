@@ -0,0 +1,591 @@
+`CRC.cpp` shows how a CRC is computed by long division of bit strings, which makes the idea easy to follow but is far too slow for real use: every step builds new strings of `'0'` and `'1'` characters. This is the same check done the way network stacks and storage systems do it, in Java, so that the socket programs can protect their frames and files with it.
+
+### How It Works
+
+A CRC is fully described by six parameters, as in the well-known catalogue of CRC algorithms:
+
+- **width**: the number of bits in the checksum (8, 16, 32, 64, ...).
+- **poly**: the generator polynomial, without its top bit (the `key` in `CRC.cpp` is the polynomial with its top bit).
+- **init**: the register value before any data.
+- **refin** / **refout**: whether input bytes are processed least significant bit first, and whether the result is bit-reversed.
+- **xorout**: a value XORed into the result at the end.
+
+Instead of dividing one bit at a time, a 256-entry table holds the effect of every possible byte on the register, so each byte costs one lookup. **Slicing-by-8** goes further: seven more tables give the effect of a byte followed by 1 to 7 zero bytes. That lets eight bytes be read as one `long`, XORed into the register, and folded in with eight independent lookups. Reflected CRCs keep the register right-aligned in a `long`; the others keep it left-aligned, so any width up to 64 uses the same code.
+
+Two CRCs can also be **combined** without touching the data again. Feeding a zero byte into the register is a linear map over GF(2), so it can be written as a 64×64 bit matrix, and *n* zero bytes are that matrix to the power *n*. Since the CRC of A followed by B equals the CRC of B started from A's register, `combine` only needs the registers of A and B and the length of B: it applies the matrices for 2^k zero bytes for each bit k set in the length (squared once and cached, as in zlib's `crc32_combine`), which costs a few microseconds whatever the sizes. This is what lets `ParallelCrc` checksum pieces of a file on separate cores and still get exactly the sequential CRC.
+
+The `Crc` object holds the parameters and tables and is immutable and thread-safe. The running value is a plain `long` register passed to `update`, and `digest()` wraps it in a `java.util.zip.Checksum` for code that expects one.
+
+### Java Code for the CRC Library
+
+#### `Crc.java`
+
+/*
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Checksum;
+
+public final class Crc {
+    // Presets from the CRC catalogue; 'check' is the CRC of the ASCII bytes "123456789"
+    public static final Crc CRC8 = new Crc("CRC-8/SMBUS", 8, 0x07, 0, false, false, 0);
+    public static final Crc CRC16_CCITT = new Crc("CRC-16/IBM-3740", 16, 0x1021, 0xFFFF, false, false, 0);
+    public static final Crc CRC16_ARC = new Crc("CRC-16/ARC", 16, 0x8005, 0, true, true, 0);
+    public static final Crc CRC32 = new Crc("CRC-32/ISO-HDLC", 32, 0x04C11DB7L, 0xFFFFFFFFL, true, true, 0xFFFFFFFFL);
+    public static final Crc CRC32C = new Crc("CRC-32/ISCSI", 32, 0x1EDC6F41L, 0xFFFFFFFFL, true, true, 0xFFFFFFFFL);
+    public static final Crc CRC32_BZIP2 = new Crc("CRC-32/BZIP2", 32, 0x04C11DB7L, 0xFFFFFFFFL, false, false, 0xFFFFFFFFL);
+    public static final Crc CRC64_XZ = new Crc("CRC-64/XZ", 64, 0x42F0E1EBA9EA3693L, -1L, true, true, -1L);
+    public static final Crc CRC64_ECMA = new Crc("CRC-64/ECMA-182", 64, 0x42F0E1EBA9EA3693L, 0, false, false, 0);
+    private static final Crc[] PRESETS = {CRC8, CRC16_CCITT, CRC16_ARC, CRC32, CRC32C, CRC32_BZIP2, CRC64_XZ, CRC64_ECMA};
+
+    private static final VarHandle LONG_LE_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LE_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final String name;
+    private final int width;
+    private final long poly;
+    private final long init;
+    private final boolean refIn;
+    private final boolean refOut;
+    private final long xorOut;
+    private final long mask;
+    // Slice k (k = 0..7) at [256 * k]: the effect of a byte followed by k zero bytes
+    private final long[] table = new long[8 * 256];
+    // zeroPowers[k]: the register after 2^k zero bytes, as a 64x64 GF(2) matrix of columns; built on first combine()
+    private volatile long[][] zeroPowers;
+
+    public Crc(String name, int width, long poly, long init, boolean refIn, boolean refOut, long xorOut) {
+        if (width < 1 || width > 64) {
+            throw new IllegalArgumentException("width must be 1-64: " + width);
+        }
+        this.name = name;
+        this.width = width;
+        this.mask = width == 64 ? -1L : (1L << width) - 1;
+        this.poly = poly & mask;
+        this.init = init & mask;
+        this.refIn = refIn;
+        this.refOut = refOut;
+        this.xorOut = xorOut & mask;
+
+        if (refIn) {
+            long reflected = Long.reverse(this.poly) >>> (64 - width);
+            for (int b = 0; b < 256; b++) {
+                long c = b;
+                for (int bit = 0; bit < 8; bit++) {
+                    c = (c & 1) != 0 ? (c >>> 1) ^ reflected : c >>> 1;
+                }
+                table[b] = c;
+            }
+            for (int k = 1; k < 8; k++) {
+                for (int b = 0; b < 256; b++) {
+                    long previous = table[256 * (k - 1) + b];
+                    table[256 * k + b] = (previous >>> 8) ^ table[(int) previous & 0xFF];
+                }
+            }
+        } else {
+            long aligned = this.poly << (64 - width);
+            for (int b = 0; b < 256; b++) {
+                long c = (long) b << 56;
+                for (int bit = 0; bit < 8; bit++) {
+                    c = c < 0 ? (c << 1) ^ aligned : c << 1;
+                }
+                table[b] = c;
+            }
+            for (int k = 1; k < 8; k++) {
+                for (int b = 0; b < 256; b++) {
+                    long previous = table[256 * (k - 1) + b];
+                    table[256 * k + b] = (previous << 8) ^ table[(int) (previous >>> 56)];
+                }
+            }
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public long poly() {
+        return poly;
+    }
+
+    public long init() {
+        return init;
+    }
+
+    public boolean refIn() {
+        return refIn;
+    }
+
+    public long xorOut() {
+        return xorOut;
+    }
+
+    // The register before any data; pass it to update() and the result to finish()
+    public long start() {
+        return refIn ? Long.reverse(init) >>> (64 - width) : init << (64 - width);
+    }
+
+    public long update(long register, byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        long[] t = table;
+        if (refIn) {
+            for (; end - i >= 8; i += 8) {
+                long x = register ^ (long) LONG_LE_ARRAY.get(data, i);
+                register = t[7 * 256 + ((int) x & 0xFF)] ^ t[6 * 256 + ((int) (x >>> 8) & 0xFF)]
+                        ^ t[5 * 256 + ((int) (x >>> 16) & 0xFF)] ^ t[4 * 256 + ((int) (x >>> 24) & 0xFF)]
+                        ^ t[3 * 256 + ((int) (x >>> 32) & 0xFF)] ^ t[2 * 256 + ((int) (x >>> 40) & 0xFF)]
+                        ^ t[256 + ((int) (x >>> 48) & 0xFF)] ^ t[(int) (x >>> 56)];
+            }
+            for (; i < end; i++) {
+                register = (register >>> 8) ^ t[((int) register ^ data[i]) & 0xFF];
+            }
+        } else {
+            for (; end - i >= 8; i += 8) {
+                long x = register ^ (long) LONG_BE_ARRAY.get(data, i);
+                register = t[7 * 256 + (int) (x >>> 56)] ^ t[6 * 256 + ((int) (x >>> 48) & 0xFF)]
+                        ^ t[5 * 256 + ((int) (x >>> 40) & 0xFF)] ^ t[4 * 256 + ((int) (x >>> 32) & 0xFF)]
+                        ^ t[3 * 256 + ((int) (x >>> 24) & 0xFF)] ^ t[2 * 256 + ((int) (x >>> 16) & 0xFF)]
+                        ^ t[256 + ((int) (x >>> 8) & 0xFF)] ^ t[(int) x & 0xFF];
+            }
+            for (; i < end; i++) {
+                register = (register << 8) ^ t[((int) (register >>> 56) ^ data[i]) & 0xFF];
+            }
+        }
+        return register;
+    }
+
+    public long updateByte(long register, int b) {
+        return refIn
+                ? (register >>> 8) ^ table[((int) register ^ b) & 0xFF]
+                : (register << 8) ^ table[((int) (register >>> 56) ^ b) & 0xFF];
+    }
+
+    // Consumes the buffer's remaining bytes, heap or direct, and advances its position
+    public long update(long register, ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        if (buffer.hasArray()) {
+            register = update(register, buffer.array(), buffer.arrayOffset() + position, limit - position);
+            buffer.position(limit);
+            return register;
+        }
+        int i = position;
+        long[] t = table;
+        if (refIn) {
+            for (; limit - i >= 8; i += 8) {
+                long x = register ^ (long) LONG_LE_BUFFER.get(buffer, i);
+                register = t[7 * 256 + ((int) x & 0xFF)] ^ t[6 * 256 + ((int) (x >>> 8) & 0xFF)]
+                        ^ t[5 * 256 + ((int) (x >>> 16) & 0xFF)] ^ t[4 * 256 + ((int) (x >>> 24) & 0xFF)]
+                        ^ t[3 * 256 + ((int) (x >>> 32) & 0xFF)] ^ t[2 * 256 + ((int) (x >>> 40) & 0xFF)]
+                        ^ t[256 + ((int) (x >>> 48) & 0xFF)] ^ t[(int) (x >>> 56)];
+            }
+            for (; i < limit; i++) {
+                register = (register >>> 8) ^ t[((int) register ^ buffer.get(i)) & 0xFF];
+            }
+        } else {
+            for (; limit - i >= 8; i += 8) {
+                long x = register ^ (long) LONG_BE_BUFFER.get(buffer, i);
+                register = t[7 * 256 + (int) (x >>> 56)] ^ t[6 * 256 + ((int) (x >>> 48) & 0xFF)]
+                        ^ t[5 * 256 + ((int) (x >>> 40) & 0xFF)] ^ t[4 * 256 + ((int) (x >>> 32) & 0xFF)]
+                        ^ t[3 * 256 + ((int) (x >>> 24) & 0xFF)] ^ t[2 * 256 + ((int) (x >>> 16) & 0xFF)]
+                        ^ t[256 + ((int) (x >>> 8) & 0xFF)] ^ t[(int) x & 0xFF];
+            }
+            for (; i < limit; i++) {
+                register = (register << 8) ^ t[((int) (register >>> 56) ^ buffer.get(i)) & 0xFF];
+            }
+        }
+        buffer.position(limit);
+        return register;
+    }
+
+    // The register as a CRC value, before xorout; see finish()
+    public long raw(long register) {
+        long value = refIn ? register : register >>> (64 - width);
+        return refIn != refOut ? Long.reverse(value) >>> (64 - width) : value;
+    }
+
+    public long finish(long register) {
+        return raw(register) ^ xorOut;
+    }
+
+    // The register for A followed by B, from the registers of A and B (each started at start())
+    // and the length of B, in the manner of zlib's crc32_combine
+    public long combine(long registerA, long registerB, long lengthB) {
+        if (lengthB < 0) {
+            throw new IllegalArgumentException("negative length: " + lengthB);
+        }
+        long[][] powers = zeroPowers;
+        if (powers == null) {
+            powers = zeroPowers = buildZeroPowers();
+        }
+        // Updating is linear: update(a, B) = Z^|B| a ^ update(0, B), and registerB = Z^|B| start() ^ update(0, B)
+        long register = registerA ^ start();
+        for (long n = lengthB; n != 0; n &= n - 1) {
+            register = multiply(powers[Long.numberOfTrailingZeros(n)], register);
+        }
+        return register ^ registerB;
+    }
+
+    private long[][] buildZeroPowers() {
+        long[][] powers = new long[63][64];
+        for (int bit = 0; bit < 64; bit++) {
+            powers[0][bit] = updateByte(1L << bit, 0);
+        }
+        for (int k = 1; k < powers.length; k++) {
+            for (int bit = 0; bit < 64; bit++) {
+                powers[k][bit] = multiply(powers[k - 1], powers[k - 1][bit]);
+            }
+        }
+        return powers;
+    }
+
+    private static long multiply(long[] matrix, long vector) {
+        long result = 0;
+        for (; vector != 0; vector &= vector - 1) {
+            result ^= matrix[Long.numberOfTrailingZeros(vector)];
+        }
+        return result;
+    }
+
+    public long compute(byte[] data) {
+        return finish(update(start(), data, 0, data.length));
+    }
+
+    public long compute(ByteBuffer data) {
+        return finish(update(start(), data));
+    }
+
+    // The CRC of "123456789", the value every catalogue entry is checked against
+    public long check() {
+        return compute("123456789".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public Checksum digest() {
+        return new Checksum() {
+            private long register = start();
+
+            @Override
+            public void update(int b) {
+                register = updateByte(register, b);
+            }
+
+            @Override
+            public void update(byte[] b, int off, int len) {
+                register = Crc.this.update(register, b, off, len);
+            }
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                register = Crc.this.update(register, buffer);
+            }
+
+            @Override
+            public long getValue() {
+                return finish(register);
+            }
+
+            @Override
+            public void reset() {
+                register = start();
+            }
+        };
+    }
+
+    // A preset by its catalogue name, e.g. "CRC-32/ISCSI", ignoring case
+    public static Crc forName(String name) {
+        for (Crc crc : PRESETS) {
+            if (crc.name.equalsIgnoreCase(name)) {
+                return crc;
+            }
+        }
+        throw new IllegalArgumentException("unknown CRC: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s width=%d poly=0x%X init=0x%X refin=%b refout=%b xorout=0x%X",
+                name, width, poly, init, refIn, refOut, xorOut);
+    }
+
+    // java Crc [text]: the presets with their check values, or the CRCs of the given text
+    public static void main(String[] args) {
+        byte[] data = args.length > 0 ? String.join(" ", args).getBytes(StandardCharsets.UTF_8) : null;
+        for (Crc crc : PRESETS) {
+            long value = data == null ? crc.check() : crc.compute(data);
+            System.out.printf("%-16s %0" + (crc.width() + 3) / 4 + "X%n", crc.name(), value);
+        }
+    }
+}
+*/
+
+#### `CrcBenchmark.java`
+
+JMH is not part of these programs, so this is a plain `System.nanoTime` benchmark. It compares `Crc` on heap and direct buffers with `java.util.zip.CRC32` (which the JVM accelerates with dedicated CPU instructions) and with a line-by-line Java port of `mod2div` from `CRC.cpp`. The port is so slow that it only gets a small input, and it first confirms that the table-driven code produces the same remainder.
+
+/*
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+public class CrcBenchmark {
+
+    // Port of CRC.cpp: XOR of two bit strings, dropping the leading bit
+    static String xor1(String a, String b) {
+        StringBuilder result = new StringBuilder(b.length() - 1);
+        for (int i = 1; i < b.length(); i++) {
+            result.append(a.charAt(i) == b.charAt(i) ? '0' : '1');
+        }
+        return result.toString();
+    }
+
+    // Port of CRC.cpp: modulo-2 division of bit strings
+    static String mod2div(String dividend, String divisor) {
+        int pick = divisor.length();
+        String tmp = dividend.substring(0, pick);
+        int n = dividend.length();
+        while (pick < n) {
+            if (tmp.charAt(0) == '1') {
+                tmp = xor1(divisor, tmp) + dividend.charAt(pick);
+            } else {
+                tmp = xor1("0".repeat(pick), tmp) + dividend.charAt(pick);
+            }
+            pick++;
+        }
+        return tmp.charAt(0) == '1' ? xor1(divisor, tmp) : xor1("0".repeat(pick), tmp);
+    }
+
+    static String bits(byte[] data) {
+        StringBuilder text = new StringBuilder(data.length * 8);
+        for (byte b : data) {
+            for (int bit = 7; bit >= 0; bit--) {
+                text.append((b >> bit & 1) == 1 ? '1' : '0');
+            }
+        }
+        return text.toString();
+    }
+
+    // Best time of several rounds, as MB/s
+    static double throughput(long bytes, int rounds, LongSupplier run) {
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            sink += run.getAsLong();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == 42) {
+            System.out.println(); // Keeps the results alive
+        }
+        return bytes / 1e6 / (best / 1e9);
+    }
+
+    // java CrcBenchmark [megabytes]
+    public static void main(String[] args) {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 64) << 20;
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        ByteBuffer direct = ByteBuffer.allocateDirect(size);
+        direct.put(data).flip();
+
+        // The string version divides by the key with its top bit, init 0, no reflection or xorout
+        Crc plain = new Crc("CRC-32/plain", 32, 0x04C11DB7L, 0, false, false, 0);
+        byte[] small = Arrays.copyOf(data, 4096);
+        String key = "1" + bits(new byte[] {0x04, (byte) 0xC1, 0x1D, (byte) 0xB7});
+        String remainder = mod2div(bits(small) + "0".repeat(32), key);
+        if (Long.parseLong(remainder, 2) != plain.compute(small)) {
+            throw new IllegalStateException("mod2div and Crc disagree");
+        }
+        CRC32 zip = new CRC32();
+        zip.update(data);
+        if (zip.getValue() != Crc.CRC32.compute(data)) {
+            throw new IllegalStateException("java.util.zip.CRC32 and Crc.CRC32 disagree");
+        }
+
+        double stringRate = throughput(small.length, 3, () -> mod2div(bits(small) + "0".repeat(32), key).length());
+        double zipRate = throughput(size, 10, () -> {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            return crc.getValue();
+        });
+        double heapRate = throughput(size, 10, () -> Crc.CRC32.compute(data));
+        double directRate = throughput(size, 10, () -> Crc.CRC32C.compute(direct.duplicate()));
+        double crc64Rate = throughput(size, 10, () -> Crc.CRC64_XZ.compute(data));
+        double crc16Rate = throughput(size, 10, () -> Crc.CRC16_CCITT.compute(data));
+
+        System.out.printf("mod2div (bit strings, 4 KB)      %10.3f MB/s%n", stringRate);
+        System.out.printf("java.util.zip.CRC32             %10.1f MB/s%n", zipRate);
+        System.out.printf("Crc CRC-32, byte[]              %10.1f MB/s (%.0fx mod2div)%n", heapRate, heapRate / stringRate);
+        System.out.printf("Crc CRC-32C, direct ByteBuffer  %10.1f MB/s%n", directRate);
+        System.out.printf("Crc CRC-64/XZ, byte[]           %10.1f MB/s%n", crc64Rate);
+        System.out.printf("Crc CRC-16 (non-reflected)      %10.1f MB/s%n", crc16Rate);
+    }
+}
+*/
+
+#### `ParallelCrc.java`
+
+Checking a multi-GB file with one thread is limited to the speed of one core. `ParallelCrc` memory-maps the file in chunks (32 MB by default), computes the register of every chunk on a fork-join pool, and merges neighbouring results with `Crc.combine` as the tasks join, so the answer is identical to a sequential CRC and the time scales with the number of cores. For CRC-32 and CRC-32C the chunks go through `java.util.zip.CRC32`/`CRC32C`, which use the CPU's CRC instructions; every other CRC uses the slicing-by-8 tables. `FileReceiver` and `FileSender` use it for their CRC-32 of the transferred file.
+
+/*
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+public final class ParallelCrc {
+    public static final long DEFAULT_CHUNK = 32L << 20;
+
+    private ParallelCrc() {
+    }
+
+    // The register of bytes [from, to) of the file, equal to one sequential update() from crc.start()
+    public static long register(Crc crc, FileChannel file, long from, long to, long chunk, ForkJoinPool pool)
+            throws IOException {
+        if (chunk <= 0 || chunk > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk must be 1 to 2^31-1 bytes: " + chunk);
+        }
+        try {
+            return pool.invoke(new Range(crc, file, from, to, chunk));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // The CRC of the first 'length' bytes, on the common fork-join pool
+    public static long checksum(Crc crc, FileChannel file, long length) throws IOException {
+        return crc.finish(register(crc, file, 0, length, DEFAULT_CHUNK, ForkJoinPool.commonPool()));
+    }
+
+    // One thread, one window at a time: the reference the parallel result must match
+    public static long sequential(Crc crc, FileChannel file, long length) throws IOException {
+        Checksum checksum = crc == Crc.CRC32 ? new CRC32() : crc == Crc.CRC32C ? new CRC32C() : crc.digest();
+        for (long position = 0; position < length; position += DEFAULT_CHUNK) {
+            checksum.update(file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(DEFAULT_CHUNK, length - position)));
+        }
+        return checksum.getValue();
+    }
+
+    @SuppressWarnings("serial") // Tasks only ever live in the pool
+    private static final class Range extends RecursiveTask<Long> {
+        private final Crc crc;
+        private final FileChannel file;
+        private final long from;
+        private final long to;
+        private final long chunk;
+
+        Range(Crc crc, FileChannel file, long from, long to, long chunk) {
+            this.crc = crc;
+            this.file = file;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Long compute() {
+            long chunks = (to - from + chunk - 1) / chunk;
+            if (chunks <= 1) {
+                return leaf();
+            }
+            // Split on a chunk boundary; the left half runs on another worker while this one does the right
+            long middle = from + chunks / 2 * chunk;
+            Range left = new Range(crc, file, from, middle, chunk);
+            left.fork();
+            long right = new Range(crc, file, middle, to, chunk).compute();
+            return crc.combine(left.join(), right, to - middle);
+        }
+
+        private long leaf() {
+            MappedByteBuffer data;
+            try {
+                data = file.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // For these two the JDK's value without xorout is exactly the register
+            if (crc == Crc.CRC32 || crc == Crc.CRC32C) {
+                Checksum jdk = crc == Crc.CRC32 ? new CRC32() : new CRC32C();
+                jdk.update(data);
+                return jdk.getValue() ^ crc.xorOut();
+            }
+            return crc.update(crc.start(), data);
+        }
+    }
+
+    // java ParallelCrc <file> [crc name] [threads] [chunk MB] [check]
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java ParallelCrc <file> [crc name] [threads] [chunk MB] [check]");
+            return;
+        }
+        Path path = Paths.get(args[0]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long chunk = (args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_CHUNK >> 20) << 20;
+        boolean check = args.length > 4 && args[4].equals("check");
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+             ForkJoinPool pool = new ForkJoinPool(threads)) {
+            Crc crc = args.length > 1 ? Crc.forName(args[1]) : Crc.CRC32;
+            long length = file.size();
+            String digits = "%0" + (crc.width() + 3) / 4 + "X";
+
+            long start = System.nanoTime();
+            long value = crc.finish(register(crc, file, 0, length, chunk, pool));
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.printf("%s " + digits + "  %s: %d bytes, %d chunks on %d threads in %d ms, %.1f MB/s%n",
+                    crc.name(), value, path.getFileName(), length, (length + chunk - 1) / chunk, threads,
+                    elapsed / 1_000_000, length * 1e3 / elapsed);
+
+            if (check) {
+                start = System.nanoTime();
+                long expected = sequential(crc, file, length);
+                elapsed = Math.max(1, System.nanoTime() - start);
+                System.out.printf("sequential " + digits + " in %d ms, %.1f MB/s: %s%n", expected,
+                        elapsed / 1_000_000, length * 1e3 / elapsed, expected == value ? "match" : "MISMATCH");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
+*/
+
+### Running the Programs
+
+1. **Compile**:
+
+   javac Crc.java CrcBenchmark.java ParallelCrc.java
+
+2. **Check the presets** against the catalogue's check values (for example `CBF43926` for CRC-32 and `E3069283` for CRC-32C), or checksum some text:
+
+   java Crc
+
+   java Crc hello world
+
+3. **Run the benchmark** on 64 MB of random data (or another size in MB):
+
+   java CrcBenchmark 64
+
+4. **Checksum a large file** in parallel, optionally with a CRC name, the number of threads, the chunk size in MB, and `check` to compare against a single-threaded pass:
+
+   java ParallelCrc big.iso
+
+   java ParallelCrc big.iso CRC-64/XZ 8 32 check
+
+To add a CRC from the catalogue, create it with its parameters, e.g. `new Crc("CRC-16/MODBUS", 16, 0x8005, 0xFFFF, true, true, 0)`, and check that `check()` returns the catalogued value. To checksum a stream in pieces, keep the register: `long r = crc.start(); r = crc.update(r, buffer); ... crc.finish(r)`.
@@ -5,18 +5,32 @@ Here's a simple Java program that allows the user to perform both forward and re
 ### Java Program for DNS Lookup
 
 /*
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
 
 public class DNSLookup {
-
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
         Scanner scanner = new Scanner(System.in);
+        // Optional DNS server, e.g. "127.0.0.1:5353" for the stub server below
+        DnsResolver resolver;
+        if (args.length > 0) {
+            String[] server = args[0].split(":");
+            resolver = new DnsResolver(new InetSocketAddress(server[0], server.length > 1 ? Integer.parseInt(server[1]) : 53), 10_000, 2000);
+        } else {
+            resolver = DnsResolver.systemDefault();
+        }
 
         while (true) {
             System.out.println("\nEnter URL or IP address (type 'exit' to quit):");
-            String input = scanner.nextLine();
+            if (!scanner.hasNextLine()) {
+                break;
+            }
+            String input = scanner.nextLine().trim();
 
             // Exit condition
             if ("exit".equalsIgnoreCase(input)) {
@@ -24,46 +38,759 @@ public class DNSLookup {
             }
 
             try {
-                if (input.matches("^(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$")) {
-                    // Input is an IP address
+                int kind = AddressParser.classify(input);
+                if (kind == AddressParser.INVALID) {
+                    System.out.println("Error: not a valid hostname or IP address: " + input);
+                } else if (kind != AddressParser.HOSTNAME) {
+                    // Input is an IPv4 or IPv6 address
                     System.out.println("Performing reverse DNS lookup...");
                     InetAddress address = InetAddress.getByName(input);
-                    String hostName = address.getHostName();
+                    String hostName = resolver.reverse(address).get();
                     System.out.println("Hostname: " + hostName);
                 } else {
                     // Input is a hostname
                     System.out.println("Performing forward DNS lookup...");
-                    InetAddress[] addresses = InetAddress.getAllByName(input);
+                    List<InetAddress> addresses = resolver.resolve(input).get();
                     for (InetAddress addr : addresses) {
                         System.out.println("IP Address: " + addr.getHostAddress());
                     }
                 }
-            } catch (UnknownHostException e) {
-                System.out.println("Error: Host not found for " + input);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UnknownHostException) {
+                    System.out.println("Error: Host not found for " + input);
+                } else {
+                    System.out.println("Error: " + e.getCause());
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
             }
         }
 
+        resolver.close();
         scanner.close();
     }
 }
 */
 
+### Caching Asynchronous Resolver
+
+`InetAddress.getAllByName` blocks the calling thread for the full lookup and hides the JVM's cache, which ignores the TTLs the DNS server sends back. `DnsResolver` speaks the DNS protocol itself over UDP instead:
+
+- **Asynchronous**: every lookup returns a `CompletableFuture`. One socket and one reader thread serve up to 65536 outstanding queries, matched to replies by their random 16-bit query ID and by the question each reply repeats, so a late or forged reply is dropped rather than cached under the wrong name; once every ID is taken, further lookups fail at once instead of waiting for one to free up.
+- **TTL-aware cache**: answers are kept in a bounded LRU cache for exactly as long as their TTL allows. "No such name" and "no such record" answers are cached too (negative caching, RFC 2308), for the SOA minimum TTL the server returns.
+- **In-flight deduplication**: concurrent lookups of the same name share one query instead of sending one each.
+- **Timeouts and retries**: a query that gets no reply is resent a few times, then the future fails with a `SocketTimeoutException`. Callers can pass their own time limit, after which the query is dropped even if attempts remain.
+
+`StubDnsServer` answers from a fixed table, so the resolver can be tried and tested on a machine with no network.
+
+#### `DnsResolver.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class DnsResolver implements Closeable {
+    static final int TYPE_A = 1;
+    static final int TYPE_PTR = 12;
+    static final int TYPE_SOA = 6;
+    static final int TYPE_AAAA = 28;
+    private static final int RCODE_NXDOMAIN = 3;
+    private static final int MAX_NEGATIVE_TTL = 300; // Seconds, as recommended by RFC 2308
+    private static final int DEFAULT_NEGATIVE_TTL = 60;
+    private static final int ATTEMPTS = 3;
+
+    // Records of one type for one name; an empty answer is a cached "does not exist"
+    public record Answer(List<InetAddress> addresses, List<String> names, int ttl) {
+        public boolean isEmpty() {
+            return addresses.isEmpty() && names.isEmpty();
+        }
+    }
+
+    private record CacheEntry(Answer answer, long expiresAt) {}
+
+    // A query waiting for its reply
+    private static class Pending {
+        final String name;
+        final int type;
+        final long deadline; // System.nanoTime() after which no more attempts are sent
+        final CompletableFuture<Answer> future = new CompletableFuture<>();
+        int attempts;
+        volatile ScheduledFuture<?> timeout;
+
+        Pending(String name, int type, long deadline) {
+            this.name = name;
+            this.type = type;
+            this.deadline = deadline;
+        }
+    }
+
+    private final DatagramChannel channel;
+    private final long timeoutMillis;
+    private final Map<String, CacheEntry> cache;
+    private final Map<String, CompletableFuture<Answer>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dns-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Random random = new SecureRandom(); // IDs an off-path sender cannot predict
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(512);
+
+    public DnsResolver(InetSocketAddress server, int cacheCapacity, long timeoutMillis) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.connect(server);
+        this.timeoutMillis = timeoutMillis;
+        // Access-ordered LinkedHashMap: the eldest entry is the least recently used one
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+        Thread reader = new Thread(this::readReplies, "dns-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // Uses the first nameserver from /etc/resolv.conf, falling back to a public resolver
+    public static DnsResolver systemDefault() throws IOException {
+        String server = "8.8.8.8";
+        Path resolvConf = Paths.get("/etc/resolv.conf");
+        if (Files.isReadable(resolvConf)) {
+            for (String line : Files.readAllLines(resolvConf)) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length >= 2 && fields[0].equals("nameserver")) {
+                    server = fields[1];
+                    break;
+                }
+            }
+        }
+        return new DnsResolver(new InetSocketAddress(server, 53), 10_000, 2000);
+    }
+
+    // Forward lookup: IPv4 and IPv6 addresses of 'hostname'
+    public CompletableFuture<List<InetAddress>> resolve(String hostname) {
+        return resolve(hostname, ATTEMPTS * timeoutMillis);
+    }
+
+    // As resolve(hostname), giving up after 'limitMillis'; completes only once both queries are over
+    public CompletableFuture<List<InetAddress>> resolve(String hostname, long limitMillis) {
+        CompletableFuture<Answer> a = lookup(hostname, TYPE_A, limitMillis);
+        CompletableFuture<Answer> aaaa = lookup(hostname, TYPE_AAAA, limitMillis);
+        return CompletableFuture.allOf(a, aaaa).thenApply(done -> {
+            List<InetAddress> addresses = new ArrayList<>(a.join().addresses());
+            addresses.addAll(aaaa.join().addresses());
+            if (addresses.isEmpty()) {
+                throw new CompletionException(new UnknownHostException(hostname));
+            }
+            return addresses;
+        });
+    }
+
+    // Reverse lookup: the host name registered for 'address'
+    public CompletableFuture<String> reverse(InetAddress address) {
+        return reverse(address, ATTEMPTS * timeoutMillis);
+    }
+
+    public CompletableFuture<String> reverse(InetAddress address, long limitMillis) {
+        return lookup(reverseName(address.getAddress()), TYPE_PTR, limitMillis).thenApply(answer -> {
+            if (answer.names().isEmpty()) {
+                throw new CompletionException(new UnknownHostException(address.getHostAddress()));
+            }
+            return answer.names().get(0);
+        });
+    }
+
+    // One record type for one name: from the cache, from a query already in flight, or from a new query
+    public CompletableFuture<Answer> lookup(String name, int type) {
+        return lookup(name, type, ATTEMPTS * timeoutMillis);
+    }
+
+    // As lookup(name, type), but a new query is abandoned after 'limitMillis' even if attempts remain.
+    // The future completes only once the query has been dropped, so callers can use it to bound traffic.
+    public CompletableFuture<Answer> lookup(String name, int type, long limitMillis) {
+        String key = type + "/" + name.toLowerCase(Locale.ROOT);
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() - System.nanoTime() > 0) {
+                    return CompletableFuture.completedFuture(entry.answer());
+                }
+                cache.remove(key);
+            }
+        }
+
+        CompletableFuture<Answer> query = new CompletableFuture<>();
+        CompletableFuture<Answer> existing = inFlight.putIfAbsent(key, query);
+        if (existing != null) {
+            return existing;
+        }
+        send(name, type, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limitMillis)).whenComplete((answer, error) -> {
+            if (answer != null) {
+                synchronized (cache) {
+                    cache.put(key, new CacheEntry(answer, System.nanoTime() + TimeUnit.SECONDS.toNanos(answer.ttl())));
+                }
+            }
+            inFlight.remove(key);
+            if (error != null) {
+                query.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                query.complete(answer);
+            }
+        });
+        return query;
+    }
+
+    private CompletableFuture<Answer> send(String name, int type, long deadline) {
+        Pending query = new Pending(name, type, deadline);
+        int id;
+        do {
+            if (pending.size() >= 1 << 16) { // Every 16-bit ID is waiting for a reply
+                return CompletableFuture.failedFuture(new IOException("too many queries in flight"));
+            }
+            id = random.nextInt(1 << 16);
+        } while (pending.putIfAbsent(id, query) != null);
+        transmit(id, query);
+        return query.future;
+    }
+
+    private void transmit(int id, Pending query) {
+        // Arm the timer first: the reply can arrive before write() returns
+        query.attempts++;
+        long wait = Math.min(TimeUnit.MILLISECONDS.toNanos(timeoutMillis), Math.max(0, query.deadline - System.nanoTime()));
+        query.timeout = timer.schedule(() -> onTimeout(id, query), wait, TimeUnit.NANOSECONDS);
+        try {
+            synchronized (sendBuffer) {
+                sendBuffer.clear();
+                sendBuffer.putShort((short) id).putShort((short) 0x0100) // Recursion desired
+                        .putShort((short) 1).putShort((short) 0).putShort((short) 0).putShort((short) 0);
+                putName(sendBuffer, query.name);
+                sendBuffer.putShort((short) query.type).putShort((short) 1); // Class IN
+                channel.write(sendBuffer.flip());
+            }
+        } catch (IOException | RuntimeException e) {
+            query.timeout.cancel(false);
+            pending.remove(id);
+            query.future.completeExceptionally(e);
+        }
+    }
+
+    private void onTimeout(int id, Pending query) {
+        if (pending.get(id) != query) {
+            return;
+        }
+        if (query.attempts < ATTEMPTS && query.deadline - System.nanoTime() > 0) {
+            transmit(id, query);
+        } else {
+            pending.remove(id);
+            query.future.completeExceptionally(new SocketTimeoutException("no reply for " + query.name));
+        }
+    }
+
+    private void readReplies() {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                channel.read(buffer);
+                buffer.flip();
+                if (buffer.remaining() < 12) {
+                    continue;
+                }
+                int id = buffer.getShort(0) & 0xFFFF;
+                Pending query = pending.get(id);
+                if (query == null || !answers(buffer, query) || !pending.remove(id, query)) {
+                    continue; // Late reply to a query that already timed out, or one for another question
+                }
+                query.timeout.cancel(false);
+                try {
+                    query.future.complete(parse(buffer, query.type));
+                } catch (IOException | RuntimeException e) {
+                    query.future.completeExceptionally(e);
+                }
+            } catch (PortUnreachableException e) {
+                // No server yet; the timeout handles it
+            } catch (IOException e) {
+                break; // Closed
+            }
+        }
+    }
+
+    // True if 'message' is a response whose only question is the one 'query' asked
+    private static boolean answers(ByteBuffer message, Pending query) {
+        try {
+            if ((message.getShort(2) & 0x8000) == 0 || (message.getShort(4) & 0xFFFF) != 1) {
+                return false;
+            }
+            String name = query.name.endsWith(".") ? query.name.substring(0, query.name.length() - 1) : query.name;
+            int position = skipName(message, 12);
+            return readName(message, 12).equalsIgnoreCase(name)
+                    && (message.getShort(position) & 0xFFFF) == query.type
+                    && message.getShort(position + 2) == 1; // Class IN
+        } catch (ProtocolException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    // Extracts the records of 'type' from a reply; the smallest TTL among them bounds the cache lifetime
+    static Answer parse(ByteBuffer message, int type) throws IOException {
+        int flags = message.getShort(2) & 0xFFFF;
+        int rcode = flags & 0xF;
+        if ((flags & 0x8000) == 0) {
+            throw new ProtocolException("not a DNS response");
+        }
+        if (rcode != 0 && rcode != RCODE_NXDOMAIN) {
+            throw new UnknownHostException("DNS server returned error code " + rcode);
+        }
+        int questions = message.getShort(4) & 0xFFFF;
+        int answers = message.getShort(6) & 0xFFFF;
+        int authorities = message.getShort(8) & 0xFFFF;
+
+        int position = 12;
+        for (int i = 0; i < questions; i++) {
+            position = skipName(message, position) + 4;
+        }
+
+        List<InetAddress> addresses = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int ttl = Integer.MAX_VALUE;
+        for (int i = 0; i < answers + authorities; i++) {
+            int dataStart = skipName(message, position) + 10;
+            int recordType = message.getShort(dataStart - 10) & 0xFFFF;
+            int recordTtl = Math.max(0, message.getInt(dataStart - 6));
+            int dataLength = message.getShort(dataStart - 2) & 0xFFFF;
+            if (i < answers && recordType == type) {
+                if (type == TYPE_PTR) {
+                    names.add(readName(message, dataStart));
+                } else {
+                    byte[] address = new byte[dataLength];
+                    message.get(dataStart, address);
+                    addresses.add(InetAddress.getByAddress(address));
+                }
+                ttl = Math.min(ttl, recordTtl);
+            } else if (i >= answers && recordType == TYPE_SOA && names.isEmpty() && addresses.isEmpty()) {
+                // Negative answer: cache for min(SOA TTL, SOA minimum), RFC 2308
+                int minimum = message.getInt(dataStart + dataLength - 4);
+                ttl = Math.min(ttl, Math.min(recordTtl, minimum));
+            }
+            position = dataStart + dataLength;
+        }
+        if (addresses.isEmpty() && names.isEmpty()) {
+            ttl = Math.min(ttl == Integer.MAX_VALUE ? DEFAULT_NEGATIVE_TTL : ttl, MAX_NEGATIVE_TTL);
+        }
+        return new Answer(addresses, names, ttl);
+    }
+
+    static void putName(ByteBuffer out, String name) {
+        for (String label : name.split("\\.")) {
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length == 0 || bytes.length > 63) {
+                throw new IllegalArgumentException("invalid host name: " + name);
+            }
+            out.put((byte) bytes.length).put(bytes);
+        }
+        out.put((byte) 0);
+    }
+
+    // Returns the offset just past the (possibly compressed) name at 'position'
+    static int skipName(ByteBuffer message, int position) {
+        while (true) {
+            int length = message.get(position) & 0xFF;
+            if (length == 0) {
+                return position + 1;
+            }
+            if ((length & 0xC0) == 0xC0) {
+                return position + 2; // Compression pointer
+            }
+            position += length + 1;
+        }
+    }
+
+    static String readName(ByteBuffer message, int position) throws ProtocolException {
+        StringBuilder name = new StringBuilder();
+        for (int jumps = 0; jumps < 64; ) {
+            int length = message.get(position) & 0xFF;
+            if (length == 0) {
+                return name.toString();
+            }
+            if ((length & 0xC0) == 0xC0) {
+                position = ((length & 0x3F) << 8) | (message.get(position + 1) & 0xFF);
+                jumps++;
+                continue;
+            }
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            for (int i = 1; i <= length; i++) {
+                name.append((char) (message.get(position + i) & 0xFF));
+            }
+            position += length + 1;
+        }
+        throw new ProtocolException("compression loop in DNS name");
+    }
+
+    // 4.3.2.1 -> 1.2.3.4.in-addr.arpa, IPv6 addresses nibble by nibble under ip6.arpa
+    static String reverseName(byte[] address) {
+        StringBuilder name = new StringBuilder();
+        if (address.length == 4) {
+            for (int i = 3; i >= 0; i--) {
+                name.append(address[i] & 0xFF).append('.');
+            }
+            return name.append("in-addr.arpa").toString();
+        }
+        for (int i = address.length - 1; i >= 0; i--) {
+            name.append(Character.forDigit(address[i] & 0xF, 16)).append('.')
+                    .append(Character.forDigit((address[i] >> 4) & 0xF, 16)).append('.');
+        }
+        return name.append("ip6.arpa").toString();
+    }
+
+    public int cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        timer.shutdownNow();
+    }
+}
+*/
+
+#### `StubDnsServer.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.*;
+
+public class StubDnsServer {
+    private final Map<String, List<byte[]>> records = new HashMap<>(); // "type/name" -> record data
+    private final int ttl;
+    private long queries;
+
+    public StubDnsServer(int ttl) {
+        this.ttl = ttl;
+    }
+
+    // Registers an address (IPv4 or IPv6 literal) for a name, and the matching PTR record
+    public void add(String name, String address) throws UnknownHostException {
+        byte[] bytes = InetAddress.getByName(address).getAddress();
+        int type = bytes.length == 4 ? DnsResolver.TYPE_A : DnsResolver.TYPE_AAAA;
+        records.computeIfAbsent(type + "/" + name.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(bytes);
+
+        ByteBuffer ptr = ByteBuffer.allocate(256);
+        DnsResolver.putName(ptr, name);
+        records.computeIfAbsent(DnsResolver.TYPE_PTR + "/" + DnsResolver.reverseName(bytes), k -> new ArrayList<>())
+                .add(Arrays.copyOf(ptr.array(), ptr.position()));
+    }
+
+    public void serve(int port) throws IOException {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.bind(new InetSocketAddress(port));
+            System.out.println("Stub DNS server listening on port " + port + " with " + records.size() + " record set(s)");
+            ByteBuffer request = ByteBuffer.allocate(512);
+            ByteBuffer reply = ByteBuffer.allocate(4096);
+            while (true) {
+                request.clear();
+                SocketAddress client = channel.receive(request);
+                request.flip();
+                queries++;
+                if (answer(request, reply)) {
+                    channel.send(reply.flip(), client);
+                }
+            }
+        }
+    }
+
+    private boolean answer(ByteBuffer request, ByteBuffer reply) throws ProtocolException {
+        if (request.remaining() < 12 || (request.getShort(4) & 0xFFFF) != 1) {
+            return false;
+        }
+        int questionEnd = DnsResolver.skipName(request, 12) + 4;
+        String name = DnsResolver.readName(request, 12).toLowerCase(Locale.ROOT);
+        int type = request.getShort(questionEnd - 4) & 0xFFFF;
+        List<byte[]> data = records.getOrDefault(type + "/" + name, List.of());
+        boolean known = records.keySet().stream().anyMatch(key -> key.endsWith("/" + name));
+
+        reply.clear();
+        reply.putShort(request.getShort(0));
+        reply.putShort((short) (0x8180 | (known ? 0 : 3))); // Response, RD+RA, NXDOMAIN for unknown names
+        reply.putShort((short) 1).putShort((short) data.size()).putShort((short) (data.isEmpty() ? 1 : 0)).putShort((short) 0);
+        reply.put(request.slice(12, questionEnd - 12));
+        for (byte[] record : data) {
+            reply.putShort((short) 0xC00C).putShort((short) type).putShort((short) 1).putInt(ttl)
+                    .putShort((short) record.length).put(record);
+        }
+        if (data.isEmpty()) {
+            // SOA in the authority section carries the negative-caching TTL
+            reply.putShort((short) 0xC00C).putShort((short) DnsResolver.TYPE_SOA).putShort((short) 1).putInt(ttl);
+            int lengthAt = reply.position();
+            reply.putShort((short) 0);
+            DnsResolver.putName(reply, "ns.stub");
+            DnsResolver.putName(reply, "admin.stub");
+            reply.putInt(1).putInt(3600).putInt(600).putInt(86400).putInt(ttl);
+            reply.putShort(lengthAt, (short) (reply.position() - lengthAt - 2));
+        }
+        return true;
+    }
+
+    public long queries() {
+        return queries;
+    }
+
+    // java StubDnsServer <port> <ttlSeconds> name=address ...
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5353;
+        int ttl = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        StubDnsServer server = new StubDnsServer(ttl);
+        for (int i = 2; i < args.length; i++) {
+            String[] entry = args[i].split("=", 2);
+            server.add(entry[0], entry[1]);
+        }
+        if (args.length <= 2) {
+            server.add("localhost.test", "127.0.0.1");
+            server.add("localhost.test", "::1");
+            server.add("www.example.test", "192.0.2.10");
+        }
+        server.serve(port);
+    }
+}
+*/
+
+### Bulk Lookups
+
+Resolving a large list of names or addresses one at a time, as `DNSLookup` does, spends nearly all of its time waiting on the network. `BatchDnsLookup` reads names and IP addresses from a file (or standard input), keeps up to a configurable number of lookups in flight through `DnsResolver`, gives each one its own timeout, and writes each result as soon as it arrives, so memory stays flat however long the input is. The timeout is handed to the resolver, which stops retransmitting when it expires; a lookup's slot is only given back once its queries are dropped, so the limit bounds the queries actually on the wire even when the server is slow or dead. At the end it reports throughput and a latency histogram on standard error.
+
+#### `BatchDnsLookup.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BatchDnsLookup {
+    private final DnsResolver resolver;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final long timeoutMillis;
+    private final Writer out;
+    private IOException writeError; // The first failed write; guarded by 'out'
+
+    // Latency histogram: bucket i counts lookups that took [2^i, 2^(i+1)) microseconds
+    private final AtomicLongArray histogram = new AtomicLongArray(64);
+    private final LongAdder resolved = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public BatchDnsLookup(DnsResolver resolver, int maxInFlight, long timeoutMillis, Writer out) {
+        if (maxInFlight < 1 || maxInFlight > 1 << 15) { // A lookup holds up to two of the 65536 query IDs
+            throw new IllegalArgumentException("maxInFlight must be between 1 and " + (1 << 15));
+        }
+        this.resolver = resolver;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.timeoutMillis = timeoutMillis;
+        this.out = out;
+    }
+
+    public void run(BufferedReader input) throws IOException, InterruptedException {
+        String line;
+        long count = 0;
+        long start = System.nanoTime();
+        while ((line = input.readLine()) != null) {
+            String query = line.trim();
+            if (query.isEmpty() || query.startsWith("#")) {
+                continue;
+            }
+            inFlight.acquire(); // Bounds both concurrency and memory
+            count++;
+            lookup(query);
+        }
+        // Every permit back means every lookup has written its line
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        synchronized (out) {
+            if (writeError != null) {
+                throw writeError;
+            }
+            out.flush();
+        }
+        report(count, System.nanoTime() - start);
+    }
+
+    private void lookup(String query) {
+        long started = System.nanoTime();
+        CompletableFuture<String> result;
+        try {
+            int kind = AddressParser.classify(query);
+            if (kind == AddressParser.INVALID) {
+                result = CompletableFuture.failedFuture(new IllegalArgumentException("not a hostname or address"));
+            } else if (kind != AddressParser.HOSTNAME) {
+                result = resolver.reverse(InetAddress.getByName(query), timeoutMillis);
+            } else {
+                result = resolver.resolve(query, timeoutMillis).thenApply(BatchDnsLookup::join);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        // The resolver enforces the timeout and completes only after dropping its queries, so a permit
+        // is held for as long as the lookup's queries are on the wire
+        result.whenComplete((answer, error) -> {
+            try {
+                complete(query, started, answer, error);
+            } finally {
+                inFlight.release(); // Whatever happens, or run() would wait for this permit forever
+            }
+        });
+    }
+
+    private void complete(String query, long started, String answer, Throwable error) {
+        long micros = Math.max(1, (System.nanoTime() - started) / 1000);
+        histogram.incrementAndGet(63 - Long.numberOfLeadingZeros(micros));
+        String text;
+        if (error == null) {
+            resolved.increment();
+            text = answer;
+        } else {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof UnknownHostException) {
+                notFound.increment();
+                text = "NOT FOUND";
+            } else if (cause instanceof SocketTimeoutException) {
+                timedOut.increment();
+                text = "TIMEOUT";
+            } else {
+                failed.increment();
+                text = "ERROR " + cause.getMessage();
+            }
+        }
+        write(query + '\t' + text + '\n');
+    }
+
+    private static String join(List<InetAddress> addresses) {
+        StringBuilder text = new StringBuilder();
+        for (InetAddress address : addresses) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(address.getHostAddress());
+        }
+        return text.toString();
+    }
+
+    // After a failed write (say, the output pipe was closed) the rest is dropped; run() reports it
+    private void write(String line) {
+        synchronized (out) {
+            if (writeError != null) {
+                return;
+            }
+            try {
+                out.write(line);
+            } catch (IOException e) {
+                writeError = e;
+            }
+        }
+    }
+
+    private void report(long count, long elapsedNanos) {
+        PrintStream err = System.err;
+        err.printf("%d lookups in %.2f s: %.0f/s (%d resolved, %d not found, %d timed out, %d failed)%n",
+                count, elapsedNanos / 1e9, count * 1e9 / Math.max(1, elapsedNanos),
+                resolved.sum(), notFound.sum(), timedOut.sum(), failed.sum());
+        err.printf("p50 <= %d us, p90 <= %d us, p99 <= %d us%n",
+                percentile(count, 0.50), percentile(count, 0.90), percentile(count, 0.99));
+        for (int i = 0; i < 64; i++) {
+            long n = histogram.get(i);
+            if (n > 0) {
+                err.printf("  %8d - %8d us: %d%n", 1L << i, (1L << (i + 1)) - 1, n);
+            }
+        }
+    }
+
+    // Upper bound of the histogram bucket holding the given quantile
+    private long percentile(long count, double quantile) {
+        long target = (long) Math.ceil(count * quantile);
+        long seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += histogram.get(i);
+            if (seen >= target && seen > 0) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+        return 0;
+    }
+
+    // java BatchDnsLookup [inputFile|-] [server[:port]] [maxInFlight] [timeoutMillis]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String inputName = args.length > 0 ? args[0] : "-";
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        long timeoutMillis = args.length > 3 ? Long.parseLong(args[3]) : 5000;
+
+        DnsResolver resolver;
+        if (args.length > 1 && !args[1].equals("-")) {
+            String[] server = args[1].split(":");
+            resolver = new DnsResolver(new InetSocketAddress(server[0], server.length > 1 ? Integer.parseInt(server[1]) : 53), 100_000, 1000);
+        } else {
+            resolver = DnsResolver.systemDefault();
+        }
+
+        try (BufferedReader input = inputName.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(inputName));
+             // Straight to file descriptor 1: System.out would hide errors such as a closed pipe
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16)) {
+            BatchDnsLookup batch = new BatchDnsLookup(resolver, maxInFlight, timeoutMillis, out);
+            batch.run(input);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage()); // stdout may be the thing that failed
+        } finally {
+            resolver.close();
+        }
+    }
+}
+*/
+
 ### How to Compile and Run the Program:
 
 1. **Save the code** in a file named `DNSLookup.java`.
 2. **Open your terminal** and navigate to the directory containing your file.
 3. **Compile the program** using the Java compiler:
 
-   javac DNSLookup.java
+   javac AddressParser.java DNSLookup.java DnsResolver.java StubDnsServer.java BatchDnsLookup.java
 
 4. **Run the compiled program** with the Java interpreter:
 
    java DNSLookup
 
+   To try it without a network, start the stub server in another terminal with `java StubDnsServer 5353` (or `java StubDnsServer 5353 300 myhost.test=10.0.0.7 ...` for your own names) and run `java DNSLookup 127.0.0.1:5353`.
+
+   For bulk lookups, pipe in one name or IP address per line: `java BatchDnsLookup names.txt 127.0.0.1:5353 512 2000` resolves the file with up to 512 lookups in flight and a 2 second timeout each (use `-` for standard input or the system resolver). Results are written as `query<TAB>answer` in completion order, and the summary goes to standard error.
+
 5. **Use the program** by entering "localhost" when prompted. Type `exit` to quit the program.
 
 ### Explanation:
-- **Forward DNS Lookup**: When the user inputs a hostname, the program uses `InetAddress.getAllByName(String host)` to get an array of `InetAddress` objects representing all of the IP addresses for the given hostname. It prints out all IP addresses associated with the hostname.
-- **Reverse DNS Lookup**: When the user inputs an IP address, the program uses `InetAddress.getByName(String host)` to create an `InetAddress` object. Then, it retrieves the hostname associated with the given IP address using `getHostName()`. This works assuming the IP address has a reverse DNS record set up.
+- **Forward DNS Lookup**: When the user inputs a hostname, the program asks `DnsResolver.resolve` for its A (IPv4) and AAAA (IPv6) records and prints every IP address associated with the hostname.
+- **Reverse DNS Lookup**: When the user inputs an IP address, the program asks `DnsResolver.reverse` for the PTR record under `in-addr.arpa` and prints the hostname. This works assuming the IP address has a reverse DNS record set up.
+- **Caching**: Repeating a lookup within the record's TTL is answered from the resolver's cache without touching the network.
 
 This simple tool handles basic DNS lookups but note that network access is required, and the results depend on the current DNS configurations and records available for the queried hosts.
\ No newline at end of file
@@ -0,0 +1,216 @@
+The TCP programs so far only exchange lines of text through `readLine()` and `writeBytes()`, which is fine for chat but not for moving large files between machines: every byte is copied from the kernel into a Java array and back out again. Java's `FileChannel.transferTo` and `transferFrom` let the kernel move the data between the file and the socket itself (using `sendfile` on Linux), so the file never passes through user space.
+
+### Protocol
+
+The sender opens a TCP connection and writes a small binary header:
+
+| Field | Size | Meaning |
+|-------|------|---------|
+| magic | 4 bytes | `0x46545031` ("FTP1") |
+| name length | 2 bytes | length of the UTF-8 file name |
+| name | variable | file name (the receiver keeps only the last path element) |
+| length | 8 bytes | file size in bytes |
+| checksum | 8 bytes | CRC-32 of the whole file |
+
+The receiver answers with an 8-byte offset: how much of this exact file (same name and checksum) it already holds from an earlier, interrupted transfer. The sender streams the rest of the file from that offset, the receiver verifies the checksum of the completed file and replies with one status byte (1 = OK, 0 = checksum mismatch). Partial data is kept in `<name>.<checksum>.part`, so an interrupted transfer resumes where it stopped and a changed file starts over.
+
+### Java Code for Zero-Copy File Transfer
+
+#### `FileReceiver.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+public class FileReceiver {
+    static final int MAGIC = 0x46545031; // "FTP1"
+    private static final long CHUNK = 8L << 20; // Bytes per transferFrom call
+
+    private final Path directory;
+
+    public FileReceiver(Path directory) {
+        this.directory = directory;
+    }
+
+    public void serve(int port) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(new InetSocketAddress(port));
+            System.out.println("File receiver listening on port " + port + ", saving to " + directory.toAbsolutePath());
+            while (true) {
+                SocketChannel channel = server.accept();
+                executor.execute(() -> {
+                    try (channel) {
+                        receive(channel);
+                    } catch (IOException e) {
+                        System.out.println("Transfer from " + channel.socket().getRemoteSocketAddress() + " failed: " + e.getMessage());
+                    }
+                });
+            }
+        }
+    }
+
+    private void receive(SocketChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(6);
+        readFully(channel, header);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("bad magic");
+        }
+        ByteBuffer rest = ByteBuffer.allocate((header.getShort(4) & 0xFFFF) + 16);
+        readFully(channel, rest);
+        byte[] nameBytes = new byte[rest.capacity() - 16];
+        rest.get(0, nameBytes);
+        long length = rest.getLong(nameBytes.length);
+        long checksum = rest.getLong(nameBytes.length + 8);
+
+        String name = fileName(new String(nameBytes, StandardCharsets.UTF_8));
+        Path target = directory.resolve(name);
+        Path partial = directory.resolve(name + "." + Long.toHexString(checksum) + ".part");
+
+        try (FileChannel file = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            long offset = Math.min(file.size(), length);
+            file.truncate(offset);
+            channel.write(ByteBuffer.allocate(8).putLong(0, offset));
+
+            long start = System.nanoTime();
+            long position = offset;
+            while (position < length) {
+                long n = file.transferFrom(channel, position, Math.min(CHUNK, length - position));
+                if (n <= 0) {
+                    throw new EOFException("connection closed at byte " + position + " of " + length);
+                }
+                position += n;
+            }
+            long elapsed = Math.max(1, System.nanoTime() - start);
+
+            boolean ok = crc32(file, length) == checksum;
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) (ok ? 1 : 0)}));
+            System.out.printf("Received %s: %d bytes (resumed at %d) in %d ms, %.1f MB/s, checksum %s%n",
+                    name, length, offset, elapsed / 1_000_000, (length - offset) * 1e3 / elapsed, ok ? "OK" : "MISMATCH");
+            if (!ok) {
+                file.truncate(0);
+                return;
+            }
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Never let the sender choose a directory: only the last element of its name is kept, and
+    // a name that would still point at a directory ("", ".", "..", "/") is refused
+    static String fileName(String sent) throws IOException {
+        Path last;
+        try {
+            last = Paths.get(sent).getFileName();
+        } catch (InvalidPathException e) {
+            throw new IOException("bad file name: " + e.getMessage());
+        }
+        String name = last == null ? "" : last.toString();
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            throw new IOException("bad file name: \"" + sent + "\"");
+        }
+        return name;
+    }
+
+    static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("connection closed during header");
+            }
+        }
+        buffer.flip();
+    }
+
+    // CRC-32 of the first 'length' bytes, memory-mapped chunks checked in parallel (see ParallelCrc)
+    static long crc32(FileChannel file, long length) throws IOException {
+        return ParallelCrc.checksum(Crc.CRC32, file, length);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 6790;
+        Path directory = Paths.get(args.length > 1 ? args[1] : ".");
+        new FileReceiver(directory).serve(port);
+    }
+}
+*/
+
+#### `FileSender.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+public class FileSender {
+    private static final long CHUNK = 8L << 20; // Bytes per transferTo call
+
+    public static void send(String host, int port, Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+             SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            long length = file.size();
+            long checksum = FileReceiver.crc32(file, length);
+            byte[] name = path.getFileName().toString().getBytes(StandardCharsets.UTF_8);
+
+            ByteBuffer header = ByteBuffer.allocate(6 + name.length + 16);
+            header.putInt(FileReceiver.MAGIC).putShort((short) name.length).put(name).putLong(length).putLong(checksum);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            ByteBuffer reply = ByteBuffer.allocate(8);
+            FileReceiver.readFully(channel, reply);
+            long offset = reply.getLong(0);
+            if (offset > 0) {
+                System.out.println("Receiver already has " + offset + " bytes, resuming");
+            }
+
+            // The kernel copies straight from the page cache to the socket
+            long start = System.nanoTime();
+            long position = offset;
+            while (position < length) {
+                position += file.transferTo(position, Math.min(CHUNK, length - position), channel);
+            }
+            channel.shutdownOutput();
+
+            ByteBuffer status = ByteBuffer.allocate(1);
+            FileReceiver.readFully(channel, status);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.printf("Sent %s: %d bytes in %d ms, %.1f MB/s, receiver says %s%n", path.getFileName(),
+                    length - offset, elapsed / 1_000_000, (length - offset) * 1e3 / elapsed,
+                    status.get(0) == 1 ? "OK" : "checksum mismatch");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java FileSender <host> <port> <file>");
+            return;
+        }
+        send(args[0], Integer.parseInt(args[1]), Paths.get(args[2]));
+    }
+}
+*/
+
+### Running the Programs
+
+1. **Compile** both classes, together with `Crc.java` and `ParallelCrc.java` from the CRC library, which they use to checksum the file on all cores:
+
+   javac FileReceiver.java FileSender.java Crc.java ParallelCrc.java
+
+2. **Start the receiver** with a port and the directory to save files into (Java 21, since it handles each sender on a virtual thread):
+
+   java FileReceiver 6790 /tmp/incoming
+
+3. **Send a file** from another terminal or machine:
+
+   java FileSender localhost 6790 big.iso
+
+If the transfer is interrupted, run the same `FileSender` command again: the receiver reports how much it already has and only the remainder is sent.
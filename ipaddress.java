@@ -0,0 +1,382 @@
+Several programs here need to tell an IPv4 address, an IPv6 address and a hostname apart: `DNSLookup` decides between a forward and a reverse lookup, `BatchDnsLookup` does the same for millions of lines, and `SubnetCalculator` needs the base address as a number. A regular expression can only answer "is this IPv4?", it says nothing about IPv6, and it still leaves the text to be converted afterwards. `AddressParser` does all of it in a single scan of the characters, without creating any objects.
+
+### How It Works
+
+- **IPv4** is parsed into an `int` (returned as an unsigned `long` so that every address is a valid result and `-1` can mean "invalid").
+- **IPv6** is parsed into two `long`s, the high and low 64 bits, written into a caller-supplied `long[2]`. Groups before a `::` are placed from the left, groups after it are shifted in from the right, so the gap never has to be measured. An embedded IPv4 tail such as `::ffff:192.0.2.1` is accepted.
+- **Hostnames** are checked against the usual DNS rules: labels of 1 to 63 letters, digits, hyphens (not at either end) or underscores, at most 253 characters, an optional trailing dot, and a top-level label that is not all digits (so `999.1.1.1` is invalid rather than a hostname).
+
+The IPv4 and hostname checks run side by side in the same loop; the first `:` switches to the IPv6 parser. Every method takes a `CharSequence` with `from`/`to` bounds, so a caller can parse a field straight out of a larger line without calling `substring`.
+
+### Java Code for the Address Parser
+
+#### `AddressParser.java`
+
+/*
+public final class AddressParser {
+    public static final int INVALID = 0;
+    public static final int HOSTNAME = 1;
+    public static final int IPV4 = 4;
+    public static final int IPV6 = 6;
+
+    private static final int MAX_HOSTNAME = 253;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_IPV6 = 45; // "ffff:ffff:ffff:ffff:ffff:ffff:255.255.255.255"
+
+    private AddressParser() {
+    }
+
+    public static int classify(CharSequence text) {
+        return parse(text, 0, text.length(), null);
+    }
+
+    public static int parse(CharSequence text, long[] out) {
+        return parse(text, 0, text.length(), out);
+    }
+
+    // Returns INVALID, HOSTNAME, IPV4 or IPV6. For IPV4 out[0] holds the address,
+    // for IPV6 out[0] and out[1] hold the high and low halves. out may be null.
+    public static int parse(CharSequence text, int from, int to, long[] out) {
+        int length = to - from;
+        if (length <= 0 || length > MAX_HOSTNAME + 1) {
+            return INVALID;
+        }
+        // IPv4 state: the dotted quad is built up while the hostname rules are checked
+        boolean ipv4 = length <= 15;
+        long value = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        // Hostname state
+        int labelStart = from;
+        boolean numericLabel = true;
+        boolean lastLabelNumeric = true;
+
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3) {
+                    ipv4 = false;
+                }
+            } else if (c == '.') {
+                if (i == labelStart || i - labelStart > 63 || text.charAt(i - 1) == '-') {
+                    return INVALID;
+                }
+                if (digits == 0 || octet > 255) {
+                    ipv4 = false;
+                }
+                value = value << 8 | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+                lastLabelNumeric = numericLabel;
+                numericLabel = true;
+                labelStart = i + 1;
+            } else if (c == ':') {
+                return parseIPv6(text, from, to, out) ? IPV6 : INVALID;
+            } else if ((c | 0x20) >= 'a' && (c | 0x20) <= 'z' || c == '_' || c == '-') {
+                if (c == '-' && i == labelStart) {
+                    return INVALID;
+                }
+                ipv4 = false;
+                numericLabel = false;
+            } else {
+                return INVALID;
+            }
+        }
+
+        if (ipv4 && dots == 3 && digits > 0 && octet <= 255) {
+            if (out != null) {
+                out[0] = value << 8 | octet;
+            }
+            return IPV4;
+        }
+        if (labelStart == to) {
+            // Trailing dot of a fully qualified name; the last label was checked at the dot
+            numericLabel = lastLabelNumeric;
+        } else if (length > MAX_HOSTNAME || to - labelStart > 63 || text.charAt(to - 1) == '-') {
+            return INVALID;
+        }
+        return numericLabel ? INVALID : HOSTNAME;
+    }
+
+    public static long parseIPv4(CharSequence text) {
+        return parseIPv4(text, 0, text.length());
+    }
+
+    // The address as an unsigned 32-bit value, or -1 if the text is not a dotted quad
+    public static long parseIPv4(CharSequence text, int from, int to) {
+        long value = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) {
+                    return -1;
+                }
+                octet = octet * 10 + (c - '0');
+            } else if (c == '.') {
+                if (digits == 0 || octet > 255 || ++dots > 3) {
+                    return -1;
+                }
+                value = value << 8 | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0 || octet > 255) {
+            return -1;
+        }
+        return value << 8 | octet;
+    }
+
+    public static boolean parseIPv6(CharSequence text, long[] out) {
+        return parseIPv6(text, 0, text.length(), out);
+    }
+
+    // Fills out[0] (high) and out[1] (low) if out is not null
+    public static boolean parseIPv6(CharSequence text, int from, int to, long[] out) {
+        if (to - from < 2 || to - from > MAX_IPV6) {
+            return false;
+        }
+        long high = 0;
+        long low = 0;
+        // Groups after "::" are shifted in from the right, so they land in place at the end
+        long tailHigh = 0;
+        long tailLow = 0;
+        int groups = 0;
+        int gap = -1;
+        int i = from;
+        if (text.charAt(i) == ':') {
+            if (text.charAt(i + 1) != ':') {
+                return false;
+            }
+            gap = 0;
+            i += 2;
+        }
+
+        while (i < to) {
+            int start = i;
+            int group = 0;
+            while (i < to && i - start < 5) {
+                int digit = hexDigit(text.charAt(i));
+                if (digit < 0) {
+                    break;
+                }
+                group = group << 4 | digit;
+                i++;
+            }
+
+            int count;
+            long bits;
+            if (i < to && text.charAt(i) == '.') {
+                // Embedded IPv4 address, worth two groups; it must end the text
+                long ipv4 = parseIPv4(text, start, to);
+                if (ipv4 < 0 || groups > 6) {
+                    return false;
+                }
+                count = 2;
+                bits = ipv4;
+                i = to;
+            } else {
+                if (i == start || i - start > 4) {
+                    return false;
+                }
+                count = 1;
+                bits = group;
+            }
+
+            if (gap < 0) {
+                for (int k = count - 1; k >= 0; k--, groups++) {
+                    long g = bits >>> (16 * k) & 0xFFFF;
+                    if (groups < 4) {
+                        high |= g << (48 - 16 * groups);
+                    } else {
+                        low |= g << (48 - 16 * (groups - 4));
+                    }
+                }
+            } else {
+                int shift = 16 * count;
+                tailHigh = tailHigh << shift | tailLow >>> (64 - shift);
+                tailLow = tailLow << shift | bits;
+                groups += count;
+            }
+
+            if (i == to) {
+                break;
+            }
+            if (text.charAt(i) != ':' || groups >= 8 || ++i == to) {
+                return false;
+            }
+            if (text.charAt(i) == ':') {
+                if (gap >= 0) {
+                    return false;
+                }
+                gap = groups;
+                i++;
+            }
+        }
+
+        if (gap < 0 ? groups != 8 : groups > 7) {
+            return false;
+        }
+        if (out != null) {
+            out[0] = high | tailHigh;
+            out[1] = low | tailLow;
+        }
+        return true;
+    }
+
+    public static StringBuilder appendIPv4(StringBuilder out, int address) {
+        return out.append(address >>> 24).append('.')
+                .append(address >>> 16 & 0xFF).append('.')
+                .append(address >>> 8 & 0xFF).append('.')
+                .append(address & 0xFF);
+    }
+
+    public static String formatIPv4(int address) {
+        return appendIPv4(new StringBuilder(15), address).toString();
+    }
+
+    // RFC 5952 text: lowercase, no leading zeros, the longest run of two or more zero groups as "::"
+    public static StringBuilder appendIPv6(StringBuilder out, long high, long low) {
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0, run = 0; i < 8; i++) {
+            run = group(high, low, i) == 0 ? run + 1 : 0;
+            if (run > bestLength) {
+                bestLength = run;
+                bestStart = i - run + 1;
+            }
+        }
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                out.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (i > 0 && i != bestStart + bestLength) {
+                out.append(':');
+            }
+            appendHex(out, group(high, low, i));
+        }
+        return out;
+    }
+
+    public static String formatIPv6(long high, long low) {
+        return appendIPv6(new StringBuilder(39), high, low).toString();
+    }
+
+    private static void appendHex(StringBuilder out, int group) {
+        for (int shift = group == 0 ? 0 : (31 - Integer.numberOfLeadingZeros(group)) & ~3; shift >= 0; shift -= 4) {
+            out.append(HEX[group >>> shift & 0xF]);
+        }
+    }
+
+    // Character.digit would also accept non-ASCII digits
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        int lower = c | 0x20;
+        return lower >= 'a' && lower <= 'f' ? lower - 'a' + 10 : -1;
+    }
+
+    private static int group(long high, long low, int index) {
+        long half = index < 4 ? high : low;
+        return (int) (half >>> (48 - 16 * (index & 3))) & 0xFFFF;
+    }
+}
+*/
+
+#### `AddressParserBenchmark.java`
+
+A JMH harness is not part of these programs, so this is a plain `System.nanoTime` benchmark with warm-up rounds and a result checksum that keeps the JIT from discarding the work. It classifies a seeded mix of IPv4 addresses, IPv6 addresses, hostnames and junk the way `DNSLookup` used to (`String.matches`, which compiles the regex every call), with a precompiled `Pattern`, and with `AddressParser`.
+
+/*
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class AddressParserBenchmark {
+    private static final String IPV4_REGEX =
+            "^(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$";
+    private static final Pattern IPV4 = Pattern.compile(IPV4_REGEX);
+
+    interface Classifier {
+        int classify(String text);
+    }
+
+    static String[] inputs(int count, long seed) {
+        Random random = new Random(seed);
+        String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) {
+            inputs[i] = switch (random.nextInt(4)) {
+                case 0 -> random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+                case 1 -> String.format("2001:db8:%x::%x:%x", random.nextInt(0x10000), random.nextInt(0x10000), random.nextInt(0x10000));
+                case 2 -> "host" + random.nextInt(100000) + ".example" + random.nextInt(100) + ".com";
+                default -> random.nextInt(1000) + "." + random.nextInt(1000) + ".x-" + random.nextInt(10);
+            };
+        }
+        return inputs;
+    }
+
+    static double nanosPerOp(String[] inputs, int rounds, Classifier classifier) {
+        long checksum = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (String input : inputs) {
+                checksum += classifier.classify(input);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (checksum == 42) {
+            System.out.println(); // Keeps the checksum, and so the work, alive
+        }
+        return (double) best / inputs.length;
+    }
+
+    // java AddressParserBenchmark [inputs] [rounds]
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String[] inputs = inputs(count, 42);
+
+        Classifier matches = text -> text.matches(IPV4_REGEX) ? AddressParser.IPV4 : AddressParser.HOSTNAME;
+        Classifier pattern = text -> IPV4.matcher(text).matches() ? AddressParser.IPV4 : AddressParser.HOSTNAME;
+        Classifier parser = AddressParser::classify;
+
+        // Warm-up rounds let the JIT compile all three before anything is timed
+        for (Classifier classifier : new Classifier[] {matches, pattern, parser}) {
+            nanosPerOp(inputs, 3, classifier);
+        }
+
+        double matchesNanos = nanosPerOp(inputs, rounds, matches);
+        double patternNanos = nanosPerOp(inputs, rounds, pattern);
+        double parserNanos = nanosPerOp(inputs, rounds, parser);
+        System.out.printf("String.matches   %8.1f ns/op%n", matchesNanos);
+        System.out.printf("Pattern.matcher  %8.1f ns/op%n", patternNanos);
+        System.out.printf("AddressParser    %8.1f ns/op  (%.1fx faster than String.matches, %.1fx faster than Pattern)%n",
+                parserNanos, matchesNanos / parserNanos, patternNanos / parserNanos);
+    }
+}
+*/
+
+### Running the Programs
+
+1. **Compile**:
+
+   javac AddressParser.java AddressParserBenchmark.java
+
+2. **Run the benchmark**, optionally with the number of inputs and timed rounds:
+
+   java AddressParserBenchmark 200000 10
+
+   Note that the regex variants only recognise IPv4 while `AddressParser` also validates IPv6 addresses and hostnames, so the comparison favours the regex.
+
+`AddressParser` is also used by `DNSLookup` and `BatchDnsLookup` (compile it alongside them) to choose between forward and reverse lookups, and by `SubnetCalculator` to read the base address.
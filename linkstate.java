@@ -7,105 +7,2053 @@ In this simplified simulation, we'll consider a static network topology represen
 Here’s how you might code it:
 
 /*
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class LinkStateRouting {
+    static final int INFINITY = Integer.MAX_VALUE;
 
+    // Collects undirected links as primitive arrays and packs them into a Csr on demand
     static class Graph {
         private int vertices; // Number of vertices
-        private List<List<Node>> adjList; // Adjacency list
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int[] cost = new int[16];
+        private int edges;
+        private Csr csr; // Rebuilt after the next addEdge
 
         Graph(int vertices) {
             this.vertices = vertices;
-            adjList = new ArrayList<>(vertices);
-            for (int i = 0; i < vertices; i++) {
-                adjList.add(new ArrayList<>());
-            }
         }
 
         public void addEdge(int u, int v, int weight) {
-            adjList.get(u).add(new Node(v, weight));
-            adjList.get(v).add(new Node(u, weight)); // For undirected graph
+            if (u < 0 || u >= vertices || v < 0 || v >= vertices || weight < 0) {
+                throw new IllegalArgumentException("bad edge " + u + "-" + v + " (" + weight + ")");
+            }
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+                cost = Arrays.copyOf(cost, edges * 2);
+            }
+            from[edges] = u;
+            to[edges] = v;
+            cost[edges] = weight;
+            edges++;
+            csr = null;
         }
 
-        public void dijkstra(int src) {
-            PriorityQueue<Node> pq = new PriorityQueue<>(vertices, new Node());
-            int[] dist = new int[vertices];
-            Arrays.fill(dist, Integer.MAX_VALUE);
-            pq.add(new Node(src, 0));
-            dist[src] = 0;
+        public int vertices() {
+            return vertices;
+        }
+
+        public Csr csr() {
+            if (csr == null) {
+                csr = Csr.undirected(vertices, from, to, cost, edges);
+            }
+            return csr;
+        }
+
+        public ShortestPaths dijkstra(int src) {
+            return new Dijkstra(csr()).run(src, new ShortestPaths(vertices));
+        }
+    }
+
+    // Compressed sparse row adjacency: the links of v are entries offset(v) .. offset(v + 1) - 1.
+    // The arrays are IntBuffers, so they are either int[]s on the heap or the sections of a
+    // topology file mapped straight into memory.
+    //
+    // File layout (big-endian ints, like the routing table files): magic, routers, entries, 0;
+    // offsets[routers + 1]; targets[entries]; weights[entries]. Each section is mapped on its
+    // own, so a section is limited to 2 GB (over 500 million entries).
+    static final class Csr {
+        static final int MAGIC = 0x43535231; // "CSR1"
+        private static final int MAX_SECTION = Integer.MAX_VALUE / 4;
+        static final int MAX_ROUTERS = MAX_SECTION - 1; // Routers 0..MAX_ROUTERS-1; a file holds routers + 1 offsets
+
+        private final int vertices;
+        private final IntBuffer offsets;
+        private final IntBuffer targets;
+        private final IntBuffer weights;
+
+        Csr(int vertices, IntBuffer offsets, IntBuffer targets, IntBuffer weights) {
+            this.vertices = vertices;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
 
-            while (!pq.isEmpty()) {
-                Node node = pq.poll();
-                int u = node.node;
+        // Each undirected link is stored once in each direction; a counting sort on the source
+        // places every entry in O(vertices + edges)
+        static Csr undirected(int vertices, int[] from, int[] to, int[] cost, int edges) {
+            int[] offsets = new int[vertices + 1];
+            for (int e = 0; e < edges; e++) {
+                offsets[from[e] + 1]++;
+                offsets[to[e] + 1]++;
+            }
+            for (int v = 0; v < vertices; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, vertices);
+            int[] targets = new int[2 * edges];
+            int[] weights = new int[2 * edges];
+            for (int e = 0; e < edges; e++) {
+                int i = next[from[e]]++;
+                targets[i] = to[e];
+                weights[i] = cost[e];
+                int j = next[to[e]]++;
+                targets[j] = from[e];
+                weights[j] = cost[e];
+            }
+            return new Csr(vertices, IntBuffer.wrap(offsets), IntBuffer.wrap(targets), IntBuffer.wrap(weights));
+        }
 
-                for (Node edge : adjList.get(u)) {
-                    int v = edge.node;
-                    int weight = edge.cost;
-                    if (dist[u] + weight < dist[v]) {
-                        dist[v] = dist[u] + weight;
-                        pq.add(new Node(v, dist[v]));
+        // Maps a file written by write() and checks it in one pass, so a damaged or hand-made file
+        // fails here and not deep inside an SPF
+        static Csr map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (!isTopologyFile(channel)) {
+                    throw new IOException("not a topology file: " + file);
+                }
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 16);
+                int vertices = header.getInt(4);
+                int entries = header.getInt(8);
+                long targetsAt = 16 + 4L * (vertices + 1);
+                long weightsAt = targetsAt + 4L * entries;
+                if (vertices < 0 || entries < 0 || channel.size() != weightsAt + 4L * entries) {
+                    throw new IOException("truncated or corrupt topology file: " + file);
+                }
+                FileChannel.MapMode mode = FileChannel.MapMode.READ_ONLY;
+                IntBuffer offsets = section(channel, mode, 16, vertices + 1);
+                IntBuffer targets = section(channel, mode, targetsAt, entries);
+                IntBuffer weights = section(channel, mode, weightsAt, entries);
+                if (offsets.get(0) != 0 || offsets.get(vertices) != entries) {
+                    throw new IOException("corrupt offsets in topology file: " + file);
+                }
+                for (int v = 0; v < vertices; v++) {
+                    if (offsets.get(v) > offsets.get(v + 1)) {
+                        throw new IOException("offsets decrease at router " + v + " in topology file: " + file);
+                    }
+                }
+                for (int e = 0; e < entries; e++) {
+                    int target = targets.get(e);
+                    int weight = weights.get(e);
+                    if (target < 0 || target >= vertices || weight < 0 || weight > Topology.MAX_COST) {
+                        throw new IOException("bad link " + target + " (" + weight + ") at entry " + e
+                                + " in topology file: " + file);
                     }
                 }
+                return new Csr(vertices, offsets, targets, weights); // The mappings outlive the channel
+            }
+        }
+
+        static boolean isTopologyFile(FileChannel channel) throws IOException {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+
+        // Writes a temporary file next to 'file' and renames it into place, so a Csr mapped from
+        // 'file' itself stays intact while it is being copied
+        void write(Path file) throws IOException {
+            if (vertices + 1 > MAX_SECTION || entries() > MAX_SECTION) {
+                throw new IllegalArgumentException("topology too large for the file format: " + entries() + " entries");
+            }
+            Path directory = file.toAbsolutePath().getParent();
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                writeSections(temporary);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void writeSections(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(16).putInt(MAGIC).putInt(vertices).putInt(entries()).putInt(0);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                long position = 16;
+                for (IntBuffer source : new IntBuffer[] {offsets, targets, weights}) {
+                    int count = source == offsets ? vertices + 1 : entries();
+                    // A bulk put into the mapping: the buffer's order makes it big-endian
+                    section(channel, FileChannel.MapMode.READ_WRITE, position, count).put(0, source, 0, count);
+                    position += 4L * count;
+                }
+            }
+        }
+
+        private static IntBuffer section(FileChannel channel, FileChannel.MapMode mode, long position, int count)
+                throws IOException {
+            if (count > MAX_SECTION) {
+                throw new IOException("topology section too large to map: " + count + " ints");
+            }
+            return channel.map(mode, position, 4L * count).asIntBuffer();
+        }
+
+        int vertices() {
+            return vertices;
+        }
+
+        int entries() {
+            return offsets.get(vertices);
+        }
+
+        int offset(int v) {
+            return offsets.get(v);
+        }
+
+        int target(int entry) {
+            return targets.get(entry);
+        }
+
+        int weight(int entry) {
+            return weights.get(entry);
+        }
+    }
+
+    // Binary min-heap of vertices with decrease-key; position[] maps a vertex to its slot
+    static final class IndexedHeap {
+        private final int[] heap;
+        private final int[] keys; // Parallel to heap, so sifting never leaves the two arrays
+        private final int[] position;
+        private int size;
+
+        IndexedHeap(int capacity) {
+            heap = new int[capacity];
+            keys = new int[capacity];
+            position = new int[capacity];
+            Arrays.fill(position, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        // Inserts v, or lowers its key if it is already queued
+        void offer(int v, int key) {
+            int slot = position[v];
+            if (slot < 0) {
+                slot = size++;
+            } else if (key >= keys[slot]) {
+                return;
+            }
+            siftUp(slot, v, key);
+        }
+
+        // Empties the heap in O(size), for searches that stop before it runs dry
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                position[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        int poll() {
+            int top = heap[0];
+            position[top] = -1;
+            if (--size > 0) {
+                siftDown(heap[size], keys[size]);
+            }
+            return top;
+        }
+
+        private void siftUp(int slot, int v, int key) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                move(parent, slot);
+                slot = parent;
+            }
+            place(slot, v, key);
+        }
+
+        private void siftDown(int v, int key) {
+            int slot = 0;
+            int half = size >>> 1;
+            while (slot < half) {
+                int child = 2 * slot + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                move(child, slot);
+                slot = child;
+            }
+            place(slot, v, key);
+        }
+
+        private void move(int from, int to) {
+            heap[to] = heap[from];
+            keys[to] = keys[from];
+            position[heap[to]] = to;
+        }
+
+        private void place(int slot, int v, int key) {
+            heap[slot] = v;
+            keys[slot] = key;
+            position[v] = slot;
+        }
+    }
+
+    // Result of one Dijkstra run: cost and predecessor per vertex, and the order vertices were settled in
+    static final class ShortestPaths {
+        final int[] dist;
+        final int[] pred;
+        final int[] order;
+        int source;
+        int settled;
+
+        ShortestPaths(int vertices) {
+            dist = new int[vertices];
+            pred = new int[vertices];
+            order = new int[vertices];
+        }
+
+        // The neighbour of the source each destination is reached through (-1 if unreachable).
+        // Walking in settle order means every predecessor is done before its successors.
+        int[] nextHops(int[] out) {
+            Arrays.fill(out, -1);
+            if (settled > 0) {
+                out[source] = source;
+            }
+            for (int i = 1; i < settled; i++) {
+                int v = order[i];
+                out[v] = pred[v] == source ? v : out[pred[v]];
+            }
+            return out;
+        }
+    }
+
+    // Shortest paths that keep every equal-cost next hop. For each destination a bitset over the
+    // source's links, 'words' longs per destination in one flat array: bit i means the i-th
+    // link of the source in the Csr. The array only grows, so one object serves any number of
+    // runs. Link costs must be at least 1, as in OSPF, for the sets to be complete.
+    static final class EcmpPaths {
+        final int[] dist;
+        final int[] order;
+        long[] nextHops = new long[0];
+        int words;
+        int source;
+        int settled;
+
+        EcmpPaths(int vertices) {
+            dist = new int[vertices];
+            order = new int[vertices];
+        }
+
+        int count(int destination) {
+            int count = 0;
+            for (int w = 0; w < words; w++) {
+                count += Long.bitCount(nextHops[destination * words + w]);
+            }
+            return count;
+        }
+
+        // Writes the source's links (their positions in its link list) towards the destination
+        // into 'out' and returns how many there are
+        int links(int destination, int[] out) {
+            int count = 0;
+            for (int w = 0; w < words; w++) {
+                for (long bits = nextHops[destination * words + w]; bits != 0; bits &= bits - 1) {
+                    out[count++] = 64 * w + Long.numberOfTrailingZeros(bits);
+                }
             }
+            return count;
+        }
+    }
+
+    // Reusable Dijkstra over a Csr: the heap and result arrays are allocated once, not per run
+    static final class Dijkstra {
+        private final Csr graph;
+        private final IndexedHeap heap;
+
+        Dijkstra(Csr graph) {
+            this.graph = graph;
+            this.heap = new IndexedHeap(graph.vertices());
+        }
+
+        ShortestPaths run(int src, ShortestPaths into) {
+            int[] dist = into.dist;
+            int[] pred = into.pred;
+            int[] order = into.order;
+            Arrays.fill(dist, INFINITY);
+            Arrays.fill(pred, -1);
+            dist[src] = 0;
+            heap.offer(src, 0);
+            int settled = 0;
 
-            printSolution(src, dist);
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                order[settled++] = u;
+                int du = dist[u];
+                for (int e = graph.offset(u), end = graph.offset(u + 1); e < end; e++) {
+                    int v = graph.target(e);
+                    int d = du + graph.weight(e);
+                    if (d < dist[v]) {
+                        dist[v] = d;
+                        pred[v] = u;
+                        heap.offer(v, d);
+                    }
+                }
+            }
+            into.source = src;
+            into.settled = settled;
+            return into;
         }
 
-        private void printSolution(int src, int[] dist) {
-            System.out.println("Routing Table for Router " + src);
-            System.out.println("Destination\tCost");
-            for (int i = 0; i < vertices; i++) {
-                System.out.println(i + "\t\t" + dist[i]);
+        EcmpPaths ecmp(int src, EcmpPaths into) {
+            int first = graph.offset(src);
+            int words = Math.max(1, (graph.offset(src + 1) - first + 63) >>> 6);
+            int n = graph.vertices();
+            if (into.nextHops.length < (long) n * words) {
+                into.nextHops = new long[Math.multiplyExact(n, words)];
+            }
+            long[] hops = into.nextHops;
+            int[] dist = into.dist;
+            int[] order = into.order;
+            Arrays.fill(hops, 0, n * words, 0);
+            Arrays.fill(dist, INFINITY);
+            dist[src] = 0;
+            heap.offer(src, 0);
+            int settled = 0;
+
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                order[settled++] = u;
+                int du = dist[u];
+                for (int e = graph.offset(u), end = graph.offset(u + 1); e < end; e++) {
+                    int v = graph.target(e);
+                    int d = du + graph.weight(e);
+                    if (d > dist[v]) {
+                        continue;
+                    }
+                    if (d < dist[v]) { // A strictly better path replaces the set
+                        dist[v] = d;
+                        Arrays.fill(hops, v * words, (v + 1) * words, 0);
+                        heap.offer(v, d);
+                    }
+                    // Now an equal-cost path: add u's next hops, or the link itself out of the source
+                    if (u == src) {
+                        hops[v * words + ((e - first) >>> 6)] |= 1L << (e - first);
+                    } else {
+                        for (int w = 0; w < words; w++) {
+                            hops[v * words + w] |= hops[u * words + w];
+                        }
+                    }
+                }
             }
+            into.words = words;
+            into.source = src;
+            into.settled = settled;
+            return into;
         }
     }
 
-    static class Node implements Comparator<Node> {
-        public int node;
-        public int cost;
+    // A loopless path found by KShortestPaths; two routes are equal when their routers are
+    static final class Route {
+        final int[] routers;
+        final int[] costs; // costs[i]: the cost from the first router to routers[i]
+        final int deviation; // Where it leaves the route it was derived from
+
+        Route(int[] routers, int[] costs, int deviation) {
+            this.routers = routers;
+            this.costs = costs;
+            this.deviation = deviation;
+        }
+
+        int cost() {
+            return costs[costs.length - 1];
+        }
 
-        public Node() {}
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Route route && Arrays.equals(routers, route.routers);
+        }
 
-        public Node(int node, int cost) {
-            this.node = node;
-            this.cost = cost;
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(routers);
         }
 
         @Override
-        public int compare(Node node1, Node node2) {
-            if (node1.cost < node2.cost)
-                return -1;
-            if (node1.cost > node2.cost)
-                return 1;
-            return 0;
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < routers.length; i++) {
+                text.append(i == 0 ? "" : " -> ").append(routers[i]);
+            }
+            return text.append(" (cost ").append(cost()).append(')').toString();
         }
     }
 
-    public static void main(String[] args) {
-        int vertices = 5;
-        Graph graph = new Graph(vertices);
+    // Yen's algorithm for the k cheapest loopless paths between two routers. Each path after
+    // the first is the cheapest candidate made of a prefix of an earlier path (the root) and
+    // a detour from the root's last router (the spur) that avoids the root's routers and the
+    // links the earlier paths with the same root took next. As in Lawler's refinement, spurs
+    // are only tried from where a path deviated from its parent. The detours are A* searches
+    // guided by the costs to the target in the unblocked graph (one SPF per target, kept for
+    // the next query): blocking only makes paths dearer, so those costs never overestimate and
+    // each search heads almost straight for the target. They use epoch stamps instead of
+    // clearing, so a query allocates only the paths it returns.
+    static final class KShortestPaths {
+        private final Csr graph;
+        private final IndexedHeap heap;
+        private final int[] dist;
+        private final int[] pred;
+        private final int[] reached; // dist and pred are valid where reached == epoch
+        private final int[] blockedRouter;
+        private final int[] blockedLink;
+        private final Dijkstra reverse;
+        private final ShortestPaths toTarget; // Links are undirected, so an SPF from the target
+        private int epoch;
+
+        KShortestPaths(Csr graph) {
+            this.graph = graph;
+            int n = graph.vertices();
+            heap = new IndexedHeap(n);
+            dist = new int[n];
+            pred = new int[n];
+            reached = new int[n];
+            blockedRouter = new int[n];
+            blockedLink = new int[graph.entries()];
+            reverse = new Dijkstra(graph);
+            toTarget = new ShortestPaths(n);
+            toTarget.settled = -1; // Not computed yet
+        }
+
+        List<Route> find(int source, int target, int k) {
+            List<Route> found = new ArrayList<>();
+            if (toTarget.settled < 0 || toTarget.source != target) {
+                reverse.run(target, toTarget);
+            }
+            epoch++;
+            Route shortest = k > 0 ? detour(source, target, null, 0) : null;
+            if (shortest == null) {
+                return found;
+            }
+            found.add(shortest);
+            PriorityQueue<Route> candidates = new PriorityQueue<>(
+                    Comparator.comparingInt(Route::cost).thenComparingInt(route -> route.routers.length));
+            Set<Route> seen = new HashSet<>();
+            seen.add(shortest);
+
+            while (found.size() < k) {
+                Route last = found.get(found.size() - 1);
+                for (int i = last.deviation; i < last.routers.length - 1; i++) {
+                    epoch++;
+                    int spur = last.routers[i];
+                    for (Route route : found) {
+                        if (route.routers.length > i + 1 && Arrays.equals(route.routers, 0, i + 1, last.routers, 0, i + 1)) {
+                            block(spur, route.routers[i + 1]);
+                        }
+                    }
+                    for (int j = 0; j < i; j++) {
+                        blockedRouter[last.routers[j]] = epoch;
+                    }
+                    Route candidate = detour(spur, target, last, i);
+                    if (candidate != null && seen.add(candidate)) {
+                        candidates.add(candidate);
+                    }
+                }
+                Route next = candidates.poll();
+                if (next == null) {
+                    break;
+                }
+                found.add(next);
+            }
+            return found;
+        }
+
+        // Every parallel link from u to v, since routes are sequences of routers
+        private void block(int u, int v) {
+            for (int e = graph.offset(u), end = graph.offset(u + 1); e < end; e++) {
+                if (graph.target(e) == v) {
+                    blockedLink[e] = epoch;
+                }
+            }
+        }
+
+        // Root (the first rootEnd + 1 routers of 'root', or nothing) plus the cheapest path from
+        // its last router to the target that avoids what is blocked in this epoch
+        private Route detour(int spur, int target, Route root, int rootEnd) {
+            int[] remaining = toTarget.dist;
+            if (remaining[spur] == INFINITY) {
+                return null;
+            }
+            int start = root == null ? 0 : root.costs[rootEnd];
+            reached[spur] = epoch;
+            dist[spur] = start;
+            pred[spur] = -1;
+            heap.offer(spur, start + remaining[spur]);
+            boolean arrived = false;
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                if (u == target) {
+                    arrived = true;
+                    break;
+                }
+                int du = dist[u];
+                for (int e = graph.offset(u), end = graph.offset(u + 1); e < end; e++) {
+                    int v = graph.target(e);
+                    if (blockedLink[e] == epoch || blockedRouter[v] == epoch || remaining[v] == INFINITY) {
+                        continue;
+                    }
+                    int d = du + graph.weight(e);
+                    if (reached[v] != epoch || d < dist[v]) {
+                        reached[v] = epoch;
+                        dist[v] = d;
+                        pred[v] = u;
+                        heap.offer(v, d + remaining[v]);
+                    }
+                }
+            }
+            heap.clear();
+            if (!arrived) {
+                return null;
+            }
+
+            int hops = 0;
+            for (int v = target; v != spur; v = pred[v]) {
+                hops++;
+            }
+            int rootLength = root == null ? 0 : rootEnd;
+            int[] routers = new int[rootLength + hops + 1];
+            int[] costs = new int[routers.length];
+            if (root != null) {
+                System.arraycopy(root.routers, 0, routers, 0, rootLength);
+                System.arraycopy(root.costs, 0, costs, 0, rootLength);
+            }
+            for (int v = target, i = routers.length - 1; i >= rootLength; v = pred[v], i--) {
+                routers[i] = v;
+                costs[i] = dist[v];
+            }
+            return new Route(routers, costs, rootLength);
+        }
+    }
+
+    // Routing tables for every router, computed in parallel and streamed into one file.
+    //
+    // File layout (big-endian ints): magic, routers, entryBytes, links; offsets[routers + 1];
+    // neighbours[links] (the Csr targets); then one fixed-size row per router. Entry d of row r
+    // is the position of r's next hop towards d within r's neighbour list, so it fits in
+    // entryBytes = 1 or 2 bytes on real topologies. Fixed-size rows let every worker write its
+    // rows straight to their final position, in whatever order they finish.
+    static final class AllSources {
+        static final int MAGIC = 0x4E485431; // "NHT1"
+
+        private final Csr graph;
+        private final FileChannel channel;
+        private final int entryBytes;
+        private final long rowsStart;
+        private final ThreadLocal<Worker> workers;
+
+        private AllSources(Csr graph, FileChannel channel) throws IOException {
+            this.graph = graph;
+            this.channel = channel;
+            int maxDegree = 0;
+            for (int v = 0; v < graph.vertices(); v++) {
+                maxDegree = Math.max(maxDegree, graph.offset(v + 1) - graph.offset(v));
+            }
+            // The two highest values of an entry mean "unreachable" and "this router"
+            this.entryBytes = maxDegree < 0xFE ? 1 : maxDegree < 0xFFFE ? 2 : 4;
+            this.rowsStart = 16 + 4L * (graph.vertices() + 1) + 4L * graph.entries();
+            this.workers = ThreadLocal.withInitial(Worker::new);
+            writeHeader();
+        }
+
+        // Returns the number of bytes written
+        static long write(Csr graph, Path file, int threads) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+                AllSources all = new AllSources(graph, channel);
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    pool.invoke(all.new Sources(0, graph.vertices()));
+                } finally {
+                    pool.shutdown();
+                }
+                return channel.size();
+            }
+        }
+
+        private void writeHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocateDirect(1 << 16);
+            header.putInt(MAGIC).putInt(graph.vertices()).putInt(entryBytes).putInt(graph.entries());
+            long position = 0;
+            for (int v = 0; v <= graph.vertices(); v++) {
+                position = putInt(header, graph.offset(v), position);
+            }
+            for (int e = 0; e < graph.entries(); e++) {
+                position = putInt(header, graph.target(e), position);
+            }
+            flush(header, position);
+        }
+
+        private long putInt(ByteBuffer buffer, int value, long position) throws IOException {
+            if (!buffer.hasRemaining()) {
+                position = flush(buffer, position);
+            }
+            buffer.putInt(value);
+            return position;
+        }
+
+        private long flush(ByteBuffer buffer, long position) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+            return position;
+        }
+
+        // Splits the routers in half until a block is small enough to run on one worker
+        @SuppressWarnings("serial") // Never serialized; the pool only runs it
+        private final class Sources extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            Sources(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > 8) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new Sources(from, middle), new Sources(middle, to));
+                    return;
+                }
+                Worker worker = workers.get();
+                try {
+                    for (int src = from; src < to; src++) {
+                        worker.route(src);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        // Scratch space for one fork-join thread, reused for every router it handles
+        private final class Worker {
+            private final Dijkstra dijkstra = new Dijkstra(graph);
+            private final ShortestPaths paths = new ShortestPaths(graph.vertices());
+            private final int[] nextHop = new int[graph.vertices()];
+            private final int[] neighbourIndex = new int[graph.vertices()];
+            private final ByteBuffer row = ByteBuffer.allocateDirect(Math.min(1 << 20, graph.vertices() * entryBytes));
+
+            Worker() {
+                Arrays.fill(neighbourIndex, -1);
+            }
+
+            void route(int src) throws IOException {
+                dijkstra.run(src, paths);
+                paths.nextHops(nextHop);
+                int first = graph.offset(src);
+                int last = graph.offset(src + 1);
+                for (int e = last - 1; e >= first; e--) { // Parallel links: the first one wins
+                    neighbourIndex[graph.target(e)] = e - first;
+                }
+
+                int unreachable = entryBytes == 4 ? -1 : (1 << (8 * entryBytes)) - 1;
+                long position = rowsStart + (long) src * graph.vertices() * entryBytes;
+                for (int d = 0; d < nextHop.length; d++) {
+                    int hop = nextHop[d];
+                    int entry = hop < 0 ? unreachable : d == src ? unreachable - 1 : neighbourIndex[hop];
+                    if (!row.hasRemaining()) {
+                        position = flush(row, position);
+                    }
+                    switch (entryBytes) {
+                        case 1 -> row.put((byte) entry);
+                        case 2 -> row.putShort((short) entry);
+                        default -> row.putInt(entry);
+                    }
+                }
+                flush(row, position);
+
+                for (int e = first; e < last; e++) {
+                    neighbourIndex[graph.target(e)] = -1;
+                }
+            }
+        }
+
+        // Prints one router's table from a file written by write(), reading only that row
+        static void print(Path file, int router) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(16);
+                readFully(channel, header, 0, file);
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("not a routing table file: " + file);
+                }
+                int routers = header.getInt();
+                int entryBytes = header.getInt();
+                int links = header.getInt();
+                if (routers < 0 || links < 0 || (entryBytes != 1 && entryBytes != 2 && entryBytes != 4)) {
+                    throw new IOException("corrupt header in routing table file: " + file);
+                }
+                if (router < 0 || router >= routers) {
+                    throw new IllegalArgumentException("router " + router + " not in 0.." + (routers - 1));
+                }
+                ByteBuffer range = ByteBuffer.allocate(8);
+                readFully(channel, range, 16 + 4L * router, file);
+                int first = range.getInt(0);
+                int last = range.getInt(4);
+                if (first < 0 || first > last || last > links) {
+                    throw new IOException("corrupt offsets in routing table file: " + file);
+                }
+                ByteBuffer neighbours = ByteBuffer.allocate(4 * (last - first));
+                readFully(channel, neighbours, 16 + 4L * (routers + 1) + 4L * first, file);
+
+                long rowStart = 16 + 4L * (routers + 1) + 4L * links + (long) router * routers * entryBytes;
+                if (channel.size() < rowStart + (long) routers * entryBytes) {
+                    throw new IOException("truncated routing table file: " + file);
+                }
+                MappedByteBuffer row = channel.map(FileChannel.MapMode.READ_ONLY, rowStart, (long) routers * entryBytes);
+                int unreachable = entryBytes == 4 ? -1 : (1 << (8 * entryBytes)) - 1;
+                System.out.println("Routing Table for Router " + router);
+                System.out.println("Destination\tNext Hop");
+                for (int d = 0; d < routers; d++) {
+                    int entry = switch (entryBytes) {
+                        case 1 -> row.get() & 0xFF;
+                        case 2 -> row.getShort() & 0xFFFF;
+                        default -> row.getInt();
+                    };
+                    if (entry != unreachable && entry != unreachable - 1 && (entry < 0 || entry >= last - first)) {
+                        throw new IOException("corrupt entry for router " + d + " in routing table file: " + file);
+                    }
+                    String hop = entry == unreachable ? "-" : entry == unreachable - 1 ? "local"
+                            : String.valueOf(neighbours.getInt(4 * entry));
+                    System.out.println(d + "\t\t" + hop);
+                }
+            }
+        }
+
+        // Fills 'buffer' from 'position' and flips it, or fails if the file ends first
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path file)
+                throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("truncated routing table file: " + file);
+                }
+            }
+            buffer.flip();
+        }
+    }
+
+    // Links that can change after the network is built: for each router, parallel arrays of
+    // neighbours and costs with room to grow. At most one link per pair of routers.
+    static final class Topology {
+        static final int MAX_COST = 0xFFFF; // OSPF link costs are 16-bit
+
+        private final int[][] neighbours;
+        private final int[][] costs;
+        private final int[] degree;
+
+        Topology(int vertices) {
+            neighbours = new int[vertices][];
+            costs = new int[vertices][];
+            degree = new int[vertices];
+            for (int v = 0; v < vertices; v++) {
+                neighbours[v] = new int[4];
+                costs[v] = new int[4];
+            }
+        }
+
+        // Parallel links in the Csr collapse to the cheapest one
+        static Topology of(Csr csr) {
+            Topology topology = new Topology(csr.vertices());
+            for (int u = 0; u < csr.vertices(); u++) {
+                for (int e = csr.offset(u); e < csr.offset(u + 1); e++) {
+                    int v = csr.target(e);
+                    if (v != u && csr.weight(e) < topology.link(u, v)) {
+                        topology.setLink(u, v, csr.weight(e));
+                    }
+                }
+            }
+            return topology;
+        }
+
+        int vertices() {
+            return degree.length;
+        }
+
+        int degree(int v) {
+            return degree[v];
+        }
+
+        int neighbour(int v, int i) {
+            return neighbours[v][i];
+        }
+
+        int cost(int v, int i) {
+            return costs[v][i];
+        }
+
+        // The cost of link u-v, or INFINITY if there is none
+        int link(int u, int v) {
+            int i = indexOf(u, v);
+            return i < 0 ? INFINITY : costs[u][i];
+        }
+
+        // Adds link u-v or changes its cost; returns the old cost (INFINITY if it is new)
+        int setLink(int u, int v, int cost) {
+            if (u == v || cost < 0 || cost > MAX_COST) {
+                throw new IllegalArgumentException("bad link " + u + "-" + v + " (" + cost + ")");
+            }
+            int old = put(u, v, cost);
+            put(v, u, cost);
+            return old;
+        }
+
+        // Returns the removed link's cost, or INFINITY if there was no such link
+        int removeLink(int u, int v) {
+            int old = remove(u, v);
+            remove(v, u);
+            return old;
+        }
+
+        private int indexOf(int u, int v) {
+            int[] list = neighbours[u];
+            for (int i = 0; i < degree[u]; i++) {
+                if (list[i] == v) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int put(int u, int v, int cost) {
+            int i = indexOf(u, v);
+            if (i >= 0) {
+                int old = costs[u][i];
+                costs[u][i] = cost;
+                return old;
+            }
+            if (degree[u] == neighbours[u].length) {
+                neighbours[u] = Arrays.copyOf(neighbours[u], degree[u] * 2);
+                costs[u] = Arrays.copyOf(costs[u], degree[u] * 2);
+            }
+            neighbours[u][degree[u]] = v;
+            costs[u][degree[u]++] = cost;
+            return INFINITY;
+        }
+
+        private int remove(int u, int v) {
+            int i = indexOf(u, v);
+            if (i < 0) {
+                return INFINITY;
+            }
+            int old = costs[u][i];
+            int last = --degree[u];
+            neighbours[u][i] = neighbours[u][last];
+            costs[u][i] = costs[u][last];
+            return old;
+        }
+    }
+
+    // One router's shortest-path tree, repaired in place when a link changes instead of being
+    // recomputed. A cheaper link can only improve routes, so a Dijkstra is started from its
+    // far end and stops where nothing improves. A dearer or removed link only matters if it
+    // is in the tree; then only the subtree hanging below it is reset, reattached through its
+    // cheapest links to the unaffected rest of the tree, and settled again.
+    static final class IncrementalSpf {
+        private final Topology topology;
+        private final int source;
+        private final int[] dist;
+        private final int[] pred;
+        private final int[] nextHop;
+        private final IndexedHeap heap;
+
+        // Per-change scratch; stamps avoid clearing arrays between changes
+        private final int[] affected;
+        private final int[] touched;
+        private final int[] queue;
+        private final int[] changed;
+        private final int[] oldCost;
+        private final int[] oldNextHop;
+        private int changes;
+        private int epoch;
+
+        IncrementalSpf(Topology topology, int source) {
+            int n = topology.vertices();
+            this.topology = topology;
+            this.source = source;
+            dist = new int[n];
+            pred = new int[n];
+            nextHop = new int[n];
+            heap = new IndexedHeap(n);
+            affected = new int[n];
+            touched = new int[n];
+            queue = new int[n];
+            changed = new int[n];
+            oldCost = new int[n];
+            oldNextHop = new int[n];
+            Arrays.fill(dist, INFINITY);
+            Arrays.fill(pred, -1);
+            Arrays.fill(nextHop, -1);
+
+            // The first full SPF is the cheaper-link case for a tree that reaches nothing yet
+            epoch++;
+            lower(source, 0, -1);
+            settle(false);
+            changes = 0;
+        }
+
+        int cost(int destination) {
+            return dist[destination];
+        }
 
-        // Add edges
+        int nextHop(int destination) {
+            return nextHop[destination];
+        }
+
+        int predecessor(int destination) {
+            return pred[destination];
+        }
+
+        // Repairs the tree after link u-v went from oldCost to newCost (INFINITY for a link that
+        // was added or removed) and returns how many routing table entries changed
+        int linkChanged(int u, int v, int oldCost, int newCost) {
+            epoch++;
+            changes = 0;
+            if (newCost < oldCost) {
+                if (dist[u] != INFINITY && dist[u] + newCost < dist[v]) {
+                    lower(v, dist[u] + newCost, u);
+                }
+                if (dist[v] != INFINITY && dist[v] + newCost < dist[u]) {
+                    lower(u, dist[v] + newCost, v);
+                }
+                settle(false);
+            } else if (newCost > oldCost) {
+                if (pred[v] == u) {
+                    reroute(v);
+                } else if (pred[u] == v) {
+                    reroute(u);
+                }
+            }
+            return compactChanges();
+        }
+
+        // The i-th changed destination since the last linkChanged, with its previous entry
+        int changedDestination(int i) {
+            return changed[i];
+        }
+
+        int changedOldCost(int i) {
+            return oldCost[i];
+        }
+
+        int changedOldNextHop(int i) {
+            return oldNextHop[i];
+        }
+
+        private void reroute(int root) {
+            // The subtree below the link: tree children are always graph neighbours
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            affected[root] = epoch;
+            while (head < tail) {
+                int y = queue[head++];
+                for (int i = 0; i < topology.degree(y); i++) {
+                    int x = topology.neighbour(y, i);
+                    if (pred[x] == y && affected[x] != epoch) {
+                        affected[x] = epoch;
+                        queue[tail++] = x;
+                    }
+                }
+            }
+
+            for (int k = 0; k < tail; k++) {
+                int x = queue[k];
+                touch(x);
+                dist[x] = INFINITY;
+                pred[x] = -1;
+                nextHop[x] = -1;
+            }
+            // Best way back into the unaffected part of the tree, if any
+            for (int k = 0; k < tail; k++) {
+                int x = queue[k];
+                for (int i = 0; i < topology.degree(x); i++) {
+                    int y = topology.neighbour(x, i);
+                    if (affected[y] != epoch && dist[y] != INFINITY && dist[y] + topology.cost(x, i) < dist[x]) {
+                        dist[x] = dist[y] + topology.cost(x, i);
+                        pred[x] = y;
+                    }
+                }
+                if (dist[x] != INFINITY) {
+                    heap.offer(x, dist[x]);
+                }
+            }
+            settle(true);
+        }
+
+        private void lower(int v, int cost, int parent) {
+            touch(v);
+            dist[v] = cost;
+            pred[v] = parent;
+            heap.offer(v, cost);
+        }
+
+        // Dijkstra from whatever is queued; a popped vertex's parent is already final
+        private void settle(boolean onlyAffected) {
+            while (!heap.isEmpty()) {
+                int x = heap.poll();
+                nextHop[x] = x == source ? source : pred[x] == source ? x : nextHop[pred[x]];
+                int dx = dist[x];
+                for (int i = 0; i < topology.degree(x); i++) {
+                    int z = topology.neighbour(x, i);
+                    int d = dx + topology.cost(x, i);
+                    if (d < dist[z] && (!onlyAffected || affected[z] == epoch)) {
+                        if (onlyAffected) {
+                            dist[z] = d;
+                            pred[z] = x;
+                            heap.offer(z, d);
+                        } else {
+                            lower(z, d, x);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void touch(int x) {
+            if (touched[x] != epoch) {
+                touched[x] = epoch;
+                changed[changes] = x;
+                oldCost[changes] = dist[x];
+                oldNextHop[changes] = nextHop[x];
+                changes++;
+            }
+        }
+
+        // Drops touched destinations whose cost and next hop ended up the same
+        private int compactChanges() {
+            int kept = 0;
+            for (int i = 0; i < changes; i++) {
+                int x = changed[i];
+                if (dist[x] != oldCost[i] || nextHop[x] != oldNextHop[i]) {
+                    changed[kept] = x;
+                    oldCost[kept] = oldCost[i];
+                    oldNextHop[kept] = oldNextHop[i];
+                    kept++;
+                }
+            }
+            changes = kept;
+            return kept;
+        }
+    }
+
+    // Simulation events in time order. The heap holds one long per event, the time in the high
+    // half and a payload slot in the low half, so sifting moves single longs; the payload stays
+    // put in parallel primitive arrays until the event is polled, and freed slots are reused.
+    // poll() copies the earliest event into the public fields.
+    static final class EventQueue {
+        private long[] heap = new long[1024];
+        private int[] kinds = new int[1024];
+        private int[] routers = new int[1024];
+        private int[] froms = new int[1024];
+        private int[] origins = new int[1024];
+        private int[] sequences = new int[1024];
+        private int[] free = new int[1024]; // Slots below 'used' that are free again
+        private int freeCount;
+        private int used;
+        private int size;
+
+        int time;
+        int kind;
+        int router;
+        int from;
+        int origin;
+        int sequence;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        // Times must be non-negative
+        void push(int time, int kind, int router, int from, int origin, int sequence) {
+            int slot;
+            if (freeCount > 0) {
+                slot = free[--freeCount];
+            } else {
+                if (used == kinds.length) {
+                    int capacity = used * 2;
+                    heap = Arrays.copyOf(heap, capacity);
+                    kinds = Arrays.copyOf(kinds, capacity);
+                    routers = Arrays.copyOf(routers, capacity);
+                    froms = Arrays.copyOf(froms, capacity);
+                    origins = Arrays.copyOf(origins, capacity);
+                    sequences = Arrays.copyOf(sequences, capacity);
+                    free = Arrays.copyOf(free, capacity);
+                }
+                slot = used++;
+            }
+            kinds[slot] = kind;
+            routers[slot] = router;
+            froms[slot] = from;
+            origins[slot] = origin;
+            sequences[slot] = sequence;
+
+            long key = (long) time << 32 | slot;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= key) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = key;
+        }
+
+        void poll() {
+            long top = heap[0];
+            int slot = (int) top;
+            time = (int) (top >>> 32);
+            kind = kinds[slot];
+            router = routers[slot];
+            from = froms[slot];
+            origin = origins[slot];
+            sequence = sequences[slot];
+            free[freeCount++] = slot;
+
+            long key = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (key <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = key;
+        }
+    }
+
+    // The sequence number of the newest LSA from 'origin' that 'router' holds. Before the
+    // simulation every router holds every LSA at the initial sequence number; only pairs that
+    // moved on from it are stored, in one open-addressing table for the whole network, instead
+    // of a routers x routers database.
+    static final class SequenceMap {
+        private static final long EMPTY = -1; // Never a key: routers and origins are non-negative
+
+        private final int initial;
+        private long[] keys;
+        private int[] values;
+        private int shift;
+        private int size;
+
+        SequenceMap(int initial) {
+            this.initial = initial;
+            keys = new long[1024];
+            values = new int[1024];
+            shift = 64 - 10;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int router, int origin) {
+            long key = (long) router << 32 | origin;
+            int mask = keys.length - 1;
+            for (int i = slot(key); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                if (keys[i] == EMPTY) {
+                    return initial;
+                }
+            }
+        }
+
+        void put(int router, int origin, int sequence) {
+            long key = (long) router << 32 | origin;
+            int mask = keys.length - 1;
+            int i = slot(key);
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    put(router, origin, sequence);
+                    return;
+                }
+                keys[i] = key;
+                size++;
+            }
+            values[i] = sequence;
+        }
+
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            shift--;
+            Arrays.fill(keys, EMPTY);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = slot(oldKeys[j]);
+                    while (keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+
+    // Protocol timers, all in microseconds. The SPF throttle works like the usual start/hold/max
+    // scheme: the first SPF after a quiet period runs spfInitial after the change, each further
+    // one at least 'hold' after the previous start, with hold doubling up to spfMax.
+    record Timers(int detect, int linkDelay, int minLsInterval, int spfInitial, int spfHold, int spfMax, int spfCost) {
+        static Timers defaults(int spfCost) {
+            return new Timers(50_000, 1_000, 5_000_000, 50_000, 200_000, 5_000_000, spfCost);
+        }
+    }
+
+    // Discrete-event simulation of LSA flooding after link failures. Routers notice a failure,
+    // originate a new router LSA with the next sequence number (at most once per minLsInterval),
+    // and flood it on every link but the one it came in on; a router installs an LSA only if it
+    // is newer than its copy, answers an older one with its newer copy, and drops duplicates.
+    // Each install triggers the throttled SPF, which takes spfCost of simulated time. Per router
+    // the state is a few ints; times are microseconds in an int, enough for 35 simulated minutes.
+    static final class Flooding {
+        static final int INITIAL_SEQUENCE = 0x80000001; // OSPF's signed sequence space starts here
+        private static final int NEVER = Integer.MIN_VALUE / 2;
+        private static final int FAIL = 0;
+        private static final int ORIGINATE = 1;
+        private static final int RECEIVE = 2;
+        private static final int SPF = 3;
+        private static final int SPF_DONE = 4;
+
+        private final Topology topology;
+        private final Timers timers;
+        private final EventQueue events = new EventQueue();
+        private final SequenceMap lsdb = new SequenceMap(INITIAL_SEQUENCE);
+
+        private final int[] lastOriginated;
+        private final boolean[] originatePending;
+        private final int[] lastInstall;
+        private final int[] spfDue; // NEVER if no SPF is scheduled
+        private final int[] spfStarted;
+        private final int[] spfHold;
+        private final int[] busyUntil;
+        private final int[] convergedAt;
+        private final int[] spfRuns;
+        private int[] originators = new int[16];
+        private int originatorCount;
+
+        long originated;
+        long sent;
+        long installed;
+        long duplicates;
+        long older;
+        long spfTotal;
+        long processed;
+        int firstFailure = INFINITY;
+
+        Flooding(Topology topology, Timers timers) {
+            int n = topology.vertices();
+            this.topology = topology;
+            this.timers = timers;
+            lastOriginated = new int[n];
+            originatePending = new boolean[n];
+            lastInstall = new int[n];
+            spfDue = new int[n];
+            spfStarted = new int[n];
+            spfHold = new int[n];
+            busyUntil = new int[n];
+            convergedAt = new int[n];
+            spfRuns = new int[n];
+            Arrays.fill(lastOriginated, NEVER);
+            Arrays.fill(lastInstall, NEVER);
+            Arrays.fill(spfDue, NEVER);
+            Arrays.fill(spfStarted, NEVER);
+            Arrays.fill(spfHold, timers.spfHold());
+            Arrays.fill(convergedAt, NEVER);
+        }
+
+        void failLink(int u, int v, int at) {
+            events.push(at, FAIL, u, v, 0, 0);
+            firstFailure = Math.min(firstFailure, at);
+        }
+
+        // Processes events until the network is quiet
+        void run() {
+            while (!events.isEmpty()) {
+                events.poll();
+                processed++;
+                int now = events.time;
+                int r = events.router;
+                switch (events.kind) {
+                    case FAIL -> {
+                        if (topology.removeLink(r, events.from) != INFINITY) {
+                            events.push(now + timers.detect(), ORIGINATE, r, -1, r, 0);
+                            events.push(now + timers.detect(), ORIGINATE, events.from, -1, events.from, 0);
+                        }
+                    }
+                    case ORIGINATE -> originate(r, now);
+                    case RECEIVE -> receive(r, events.from, events.origin, events.sequence, now);
+                    case SPF -> {
+                        spfDue[r] = NEVER;
+                        spfStarted[r] = now;
+                        busyUntil[r] = now + timers.spfCost();
+                        spfRuns[r]++;
+                        spfTotal++;
+                        events.push(busyUntil[r], SPF_DONE, r, -1, 0, 0);
+                    }
+                    default -> { // SPF_DONE: converged if the run saw the router's latest LSA
+                        if (spfStarted[r] >= lastInstall[r]) {
+                            convergedAt[r] = now;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void originate(int r, int now) {
+            int earliest = lastOriginated[r] + timers.minLsInterval();
+            if (now < earliest) {
+                if (!originatePending[r]) {
+                    originatePending[r] = true;
+                    events.push(earliest, ORIGINATE, r, -1, r, 0);
+                }
+                return;
+            }
+            originatePending[r] = false;
+            lastOriginated[r] = now;
+            int sequence = lsdb.get(r, r);
+            if (sequence == INITIAL_SEQUENCE) {
+                if (originatorCount == originators.length) {
+                    originators = Arrays.copyOf(originators, originatorCount * 2);
+                }
+                originators[originatorCount++] = r;
+            }
+            originated++;
+            install(r, r, sequence + 1, now);
+            flood(r, -1, r, sequence + 1, now);
+        }
+
+        private void receive(int r, int from, int origin, int sequence, int now) {
+            int held = lsdb.get(r, origin);
+            if (sequence > held) {
+                install(r, origin, sequence, now);
+                flood(r, from, origin, sequence, now);
+            } else if (sequence == held) {
+                duplicates++;
+            } else {
+                older++; // The sender is behind: send it our newer copy
+                sent++;
+                events.push(now + delay(r, from), RECEIVE, from, r, origin, held);
+            }
+        }
+
+        private void install(int r, int origin, int sequence, int now) {
+            lsdb.put(r, origin, sequence);
+            lastInstall[r] = now;
+            installed++;
+            if (spfDue[r] != NEVER) {
+                return; // The SPF already scheduled will include this LSA
+            }
+            int at = now + timers.spfInitial();
+            // Compare with NEVER first: now - NEVER overflows once now passes 2^30 (about 18 minutes)
+            if (spfStarted[r] != NEVER && now - spfStarted[r] < timers.spfMax()) {
+                at = Math.max(at, spfStarted[r] + spfHold[r]);
+                spfHold[r] = Math.min(spfHold[r] * 2, timers.spfMax());
+            } else {
+                spfHold[r] = timers.spfHold();
+            }
+            spfDue[r] = Math.max(at, busyUntil[r]);
+            events.push(spfDue[r], SPF, r, -1, 0, 0);
+        }
+
+        private void flood(int r, int from, int origin, int sequence, int now) {
+            for (int i = 0; i < topology.degree(r); i++) {
+                int n = topology.neighbour(r, i);
+                if (n != from) {
+                    sent++;
+                    events.push(now + delay(r, n), RECEIVE, n, r, origin, sequence);
+                }
+            }
+        }
+
+        // A fixed delay per link, between half and one and a half linkDelay; fixed per link so
+        // messages on one link arrive in the order they were sent
+        private int delay(int u, int v) {
+            long key = (long) Math.min(u, v) << 32 | Math.max(u, v);
+            long h = key * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+            return timers.linkDelay() / 2 + (int) Long.remainderUnsigned(h, timers.linkDelay() + 1);
+        }
+
+        // When router r finished its last SPF, or -1 if no LSA ever reached it
+        int convergedAt(int r) {
+            return convergedAt[r] == NEVER ? -1 : convergedAt[r];
+        }
+
+        int spfRuns(int r) {
+            return spfRuns[r];
+        }
+
+        int maxSpfRuns() {
+            int max = 0;
+            for (int runs : spfRuns) {
+                max = Math.max(max, runs);
+            }
+            return max;
+        }
+
+        // Routers that are still connected to an originator but do not hold its newest LSA
+        int staleRouters() {
+            int n = topology.vertices();
+            int[] component = new int[n];
+            int[] queue = new int[n];
+            Arrays.fill(component, -1);
+            for (int s = 0; s < n; s++) {
+                if (component[s] >= 0) {
+                    continue;
+                }
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = s;
+                component[s] = s;
+                while (head < tail) {
+                    int x = queue[head++];
+                    for (int i = 0; i < topology.degree(x); i++) {
+                        int y = topology.neighbour(x, i);
+                        if (component[y] < 0) {
+                            component[y] = s;
+                            queue[tail++] = y;
+                        }
+                    }
+                }
+            }
+            int stale = 0;
+            for (int r = 0; r < n; r++) {
+                for (int k = 0; k < originatorCount; k++) {
+                    int o = originators[k];
+                    if (component[r] == component[o] && lsdb.get(r, o) != lsdb.get(o, o)) {
+                        stale++;
+                        break;
+                    }
+                }
+            }
+            return stale;
+        }
+
+        int storedSequences() {
+            return lsdb.size();
+        }
+    }
+
+    static void printSolution(ShortestPaths paths, int[] nextHop) {
+        System.out.println("Routing Table for Router " + paths.source);
+        System.out.println("Destination\tCost\tNext Hop");
+        for (int i = 0; i < paths.dist.length; i++) {
+            System.out.println(i + "\t\t" + paths.dist[i] + "\t" + nextHop[i]);
+        }
+    }
+
+    // The example network used by main and by the prefix table demo
+    static Graph sampleNetwork() {
+        Graph graph = new Graph(5);
         graph.addEdge(0, 1, 2);
         graph.addEdge(0, 3, 6);
         graph.addEdge(1, 3, 8);
         graph.addEdge(1, 4, 5);
         graph.addEdge(1, 2, 3);
         graph.addEdge(2, 4, 7);
+        return graph;
+    }
+
+    // A connected random network: a ring plus 'degree' random links per router, costs 1-100
+    static Graph randomNetwork(int vertices, int degree, long seed) {
+        Random random = new Random(seed);
+        Graph graph = new Graph(vertices);
+        for (int v = 0; v < vertices; v++) {
+            graph.addEdge(v, (v + 1) % vertices, 1 + random.nextInt(100));
+            for (int k = 1; k < degree; k++) {
+                graph.addEdge(v, random.nextInt(vertices), 1 + random.nextInt(100));
+            }
+        }
+        return graph;
+    }
+
+    // A network by name: "example", a topology file written by convert (mapped, not read), an
+    // edge list, or a number of routers for a random network with 'degree' links per router
+    static Csr network(String name, int degree) throws IOException {
+        if (name.equals("example")) {
+            return sampleNetwork().csr();
+        }
+        Path path = Paths.get(name);
+        if (!Files.exists(path)) {
+            if (name.isEmpty() || !name.chars().allMatch(Character::isDigit)) {
+                throw new NoSuchFileException(name);
+            }
+            return randomNetwork(Integer.parseInt(name), degree, 42).csr();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (!Csr.isTopologyFile(channel)) {
+                return readEdgeList(path);
+            }
+        }
+        return Csr.map(path);
+    }
+
+    // Reads "u v [cost]" lines, one link per line, into a Csr. The cost defaults to 1, '#'
+    // starts a comment, and routers are numbered from 0. Bytes are parsed straight from a
+    // buffer, without a String per line.
+    static Csr readEdgeList(Path file) throws IOException {
+        int[] from = new int[1 << 16];
+        int[] to = new int[1 << 16];
+        int[] cost = new int[1 << 16];
+        int edges = 0;
+        int vertices = 0;
+        int[] fields = new int[3];
+        int count = 0;
+        int value = -1; // -1 between numbers
+        boolean comment = false;
+        long line = 1;
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            while (true) {
+                int n = in.read(buffer);
+                boolean end = n < 0;
+                if (end) { // One more newline ends the last line
+                    buffer[0] = '\n';
+                    n = 1;
+                }
+                for (int i = 0; i < n; i++) {
+                    int c = buffer[i];
+                    if (comment && c != '\n') {
+                        continue;
+                    }
+                    if (c >= '0' && c <= '9') {
+                        if (value > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                            throw new IOException("line " + line + ": number too large");
+                        }
+                        value = (value < 0 ? 0 : value * 10) + (c - '0');
+                        continue;
+                    }
+                    if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != '#') {
+                        throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+                    }
+                    if (value >= 0) {
+                        if (count == 3) {
+                            throw new IOException("line " + line + ": expected 'u v [cost]'");
+                        }
+                        fields[count++] = value;
+                        value = -1;
+                    }
+                    comment |= c == '#';
+                    if (c != '\n') {
+                        continue;
+                    }
+                    if (count == 1) {
+                        throw new IOException("line " + line + ": expected 'u v [cost]'");
+                    }
+                    if (count > 1) {
+                        if (Math.max(fields[0], fields[1]) >= Csr.MAX_ROUTERS) {
+                            throw new IOException("line " + line + ": router number too large (at most "
+                                    + (Csr.MAX_ROUTERS - 1) + ")");
+                        }
+                        if (edges == from.length) {
+                            from = Arrays.copyOf(from, edges * 2);
+                            to = Arrays.copyOf(to, edges * 2);
+                            cost = Arrays.copyOf(cost, edges * 2);
+                        }
+                        from[edges] = fields[0];
+                        to[edges] = fields[1];
+                        if (count == 3 && fields[2] > Topology.MAX_COST) {
+                            throw new IOException("line " + line + ": cost above " + Topology.MAX_COST);
+                        }
+                        cost[edges] = count == 3 ? fields[2] : 1;
+                        edges++;
+                        vertices = Math.max(vertices, Math.max(fields[0], fields[1]) + 1);
+                    }
+                    count = 0;
+                    comment = false;
+                    line++;
+                }
+                if (end) {
+                    break;
+                }
+            }
+        }
+        return Csr.undirected(vertices, from, to, cost, edges);
+    }
+
+    // Applies one link change to the topology and to router 'spf', printing what changed
+    private static void change(Topology topology, IncrementalSpf spf, int u, int v, int cost) {
+        int old = cost == INFINITY ? topology.removeLink(u, v) : topology.setLink(u, v, cost);
+        int changes = spf.linkChanged(u, v, old, cost);
+        System.out.println("Link " + u + "-" + v + " cost " + (old == INFINITY ? "none" : old) + " -> "
+                + (cost == INFINITY ? "none" : cost) + ": " + changes + " routing table entries changed");
+        for (int i = 0; i < changes; i++) {
+            int d = spf.changedDestination(i);
+            System.out.println("  Destination " + d + ": cost " + spf.changedOldCost(i) + " -> " + spf.cost(d)
+                    + ", next hop " + spf.changedOldNextHop(i) + " -> " + spf.nextHop(d));
+        }
+    }
+
+    // java LinkStateRouting flap example | <routers|topology> [degree] [changes]
+    static void flap(String[] args) throws IOException {
+        if (args[1].equals("example")) {
+            Topology topology = Topology.of(sampleNetwork().csr());
+            IncrementalSpf spf = new IncrementalSpf(topology, 0);
+            change(topology, spf, 1, 4, 20);
+            change(topology, spf, 0, 1, INFINITY);
+            change(topology, spf, 0, 1, 2);
+            change(topology, spf, 3, 4, 1);
+            return;
+        }
+
+        int degree = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int count = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        Topology topology = Topology.of(network(args[1], degree));
+        int vertices = topology.vertices();
+        long start = System.nanoTime();
+        IncrementalSpf spf = new IncrementalSpf(topology, 0);
+        long fullNanos = System.nanoTime() - start;
+
+        Random random = new Random(7);
+        long nanos = 0;
+        long entries = 0;
+        for (int k = 0; k < count; k++) {
+            int u = random.nextInt(vertices);
+            int v;
+            int old;
+            int cost;
+            int action = random.nextInt(10);
+            if (action == 0 || topology.degree(u) == 0) { // Add a link
+                v = random.nextInt(vertices);
+                if (v == u) {
+                    continue;
+                }
+                cost = 1 + random.nextInt(100);
+                old = topology.setLink(u, v, cost);
+            } else {
+                v = topology.neighbour(u, random.nextInt(topology.degree(u)));
+                if (action == 1 && topology.degree(u) > 1 && topology.degree(v) > 1) { // Remove it
+                    cost = INFINITY;
+                    old = topology.removeLink(u, v);
+                } else { // Change its cost
+                    cost = 1 + random.nextInt(100);
+                    old = topology.setLink(u, v, cost);
+                }
+            }
+            start = System.nanoTime();
+            entries += spf.linkChanged(u, v, old, cost);
+            nanos += System.nanoTime() - start;
+        }
+
+        IncrementalSpf check = new IncrementalSpf(topology, 0);
+        for (int d = 0; d < vertices; d++) {
+            if (check.cost(d) != spf.cost(d)) {
+                throw new IllegalStateException("cost to " + d + " is " + spf.cost(d) + ", full SPF says " + check.cost(d));
+            }
+        }
+        System.out.printf("Full SPF: %.1f ms; %d link changes repaired in %.1f us each on average, %.1f entries changed per change%n",
+                fullNanos / 1e6, count, nanos / 1e3 / count, (double) entries / count);
+        System.out.println("Costs match a full recomputation");
+    }
+
+    // java LinkStateRouting flood example | <routers|topology> [degree] [failures] [spacing ms] [spf initial/hold/max ms]
+    static void flood(String[] args) throws IOException {
+        boolean example = args[1].equals("example");
+        Csr csr = network(args[1], args.length > 2 ? Integer.parseInt(args[2]) : 4);
+        int failures = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int spacing = (int) (1000 * (args.length > 4 ? Double.parseDouble(args[4]) : 100));
+
+        // Each SPF costs as much simulated time as a real one on this network takes here
+        Dijkstra dijkstra = new Dijkstra(csr);
+        ShortestPaths paths = new ShortestPaths(csr.vertices());
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            dijkstra.run(0, paths);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        Timers timers = Timers.defaults((int) Math.max(1, best / 1000));
+        if (args.length > 5) {
+            String[] spf = args[5].split("/");
+            timers = new Timers(timers.detect(), timers.linkDelay(), timers.minLsInterval(),
+                    1000 * Integer.parseInt(spf[0]), 1000 * Integer.parseInt(spf[1]), 1000 * Integer.parseInt(spf[2]),
+                    timers.spfCost());
+        }
+
+        Topology topology = Topology.of(csr);
+        Flooding flooding = new Flooding(topology, timers);
+        if (example) {
+            flooding.failLink(1, 4, 0);
+            flooding.failLink(1, 2, spacing);
+            failures = 2;
+        } else {
+            Random random = new Random(7);
+            for (int k = 0; k < failures; ) {
+                int u = random.nextInt(csr.vertices());
+                if (topology.degree(u) < 2) {
+                    continue;
+                }
+                int v = topology.neighbour(u, random.nextInt(topology.degree(u)));
+                if (topology.degree(v) < 2) {
+                    continue;
+                }
+                flooding.failLink(u, v, k++ * spacing);
+            }
+        }
+
+        long start = System.nanoTime();
+        flooding.run();
+        long elapsed = System.nanoTime() - start;
+
+        int routers = csr.vertices();
+        int[] converged = new int[routers];
+        int reached = 0;
+        for (int r = 0; r < routers; r++) {
+            if (flooding.convergedAt(r) >= 0) {
+                converged[reached++] = flooding.convergedAt(r) - flooding.firstFailure;
+            }
+            if (example) {
+                System.out.printf("Router %d: converged %.1f ms after the first failure, %d SPF runs%n",
+                        r, (flooding.convergedAt(r) - flooding.firstFailure) / 1000.0, flooding.spfRuns(r));
+            }
+        }
+        Arrays.sort(converged, 0, reached);
+        System.out.printf("%d routers, %d links; %d link failures %.1f ms apart%n",
+                routers, csr.entries() / 2, failures, spacing / 1000.0);
+        System.out.printf("Timers: detection %.0f ms, links %.1f-%.1f ms, SPF throttle %.0f/%.0f/%.0f ms, SPF run %.3f ms%n",
+                timers.detect() / 1000.0, timers.linkDelay() / 2000.0, timers.linkDelay() * 1.5 / 1000.0,
+                timers.spfInitial() / 1000.0, timers.spfHold() / 1000.0, timers.spfMax() / 1000.0, timers.spfCost() / 1000.0);
+        if (reached > 0) {
+            System.out.printf("Converged after %.1f ms (median router %.1f ms, 99th percentile %.1f ms)%n",
+                    converged[reached - 1] / 1000.0, converged[reached / 2] / 1000.0,
+                    converged[(int) (reached * 0.99)] / 1000.0);
+        }
+        System.out.printf("LSAs originated %d; updates sent %d, installed %d, duplicates %d, older %d%n",
+                flooding.originated, flooding.sent, flooding.installed, flooding.duplicates, flooding.older);
+        System.out.printf("SPF runs %d (at most %d on one router); %d routers with stale LSAs%n",
+                flooding.spfTotal, flooding.maxSpfRuns(), flooding.staleRouters());
+        System.out.printf("Simulated %d events in %.0f ms, %d stored sequence numbers%n",
+                flooding.processed, elapsed / 1e6, flooding.storedSequences());
+    }
+
+    // A leaf-spine fabric: spines first, then leaves, every leaf linked to every spine at cost 1
+    static Graph fabricNetwork(int spines, int leaves) {
+        Graph graph = new Graph(spines + leaves);
+        for (int leaf = spines; leaf < spines + leaves; leaf++) {
+            for (int spine = 0; spine < spines; spine++) {
+                graph.addEdge(leaf, spine, 1);
+            }
+        }
+        return graph;
+    }
+
+    // java LinkStateRouting ecmp example | <routers|topology> [degree] [runs]
+    static void ecmp(String[] args) throws IOException {
+        if (args[1].equals("example")) {
+            Csr csr = fabricNetwork(4, 6).csr();
+            int router = 4; // The first leaf
+            EcmpPaths paths = new Dijkstra(csr).ecmp(router, new EcmpPaths(csr.vertices()));
+            int[] links = new int[csr.offset(router + 1) - csr.offset(router)];
+            System.out.println("Routing Table for Router " + router);
+            System.out.println("Destination\tCost\tNext Hops");
+            for (int d = 0; d < csr.vertices(); d++) {
+                int count = paths.links(d, links);
+                StringBuilder hops = new StringBuilder(d == router ? "local" : count == 0 ? "-" : "");
+                for (int i = 0; i < count; i++) {
+                    hops.append(i == 0 ? "" : ", ").append(csr.target(csr.offset(router) + links[i]));
+                }
+                System.out.println(d + "\t\t" + paths.dist[d] + "\t" + hops);
+            }
+            return;
+        }
+
+        int degree = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        Csr csr = network(args[1], degree);
+        int vertices = csr.vertices();
+        Dijkstra dijkstra = new Dijkstra(csr);
+        ShortestPaths single = new ShortestPaths(vertices);
+        EcmpPaths paths = new EcmpPaths(vertices);
+        for (int run = 0; run < runs; run++) {
+            int src = run * (vertices / Math.max(1, runs));
+            long start = System.nanoTime();
+            dijkstra.run(src, single);
+            long singleNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            dijkstra.ecmp(src, paths);
+            long ecmpNanos = System.nanoTime() - start;
+            int multipath = 0;
+            int widest = 0;
+            for (int d = 0; d < vertices; d++) {
+                int count = paths.count(d);
+                multipath += count > 1 ? 1 : 0;
+                widest = Math.max(widest, count);
+            }
+            System.out.printf("SPF from %d: %.0f ms single path, %.0f ms ECMP; %d destinations with 2 or more next hops (up to %d)%n",
+                    src, singleNanos / 1e6, ecmpNanos / 1e6, multipath, widest);
+        }
+        System.out.printf("ECMP sets: %d longs per destination, %d bytes reused by every run%n",
+                paths.words, 8L * paths.nextHops.length);
+    }
+
+    // java LinkStateRouting paths example | <routers|topology> [degree] [from] [to] [k]
+    static void paths(String[] args) throws IOException {
+        boolean example = args[1].equals("example");
+        Csr csr = network(args[1], args.length > 2 ? Integer.parseInt(args[2]) : 4);
+        int vertices = csr.vertices();
+        int from = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int to = args.length > 4 ? Integer.parseInt(args[4]) : example ? 4 : vertices / 2;
+        int k = args.length > 5 ? Integer.parseInt(args[5]) : example ? 5 : 10;
+
+        KShortestPaths search = new KShortestPaths(csr);
+        long start = System.nanoTime();
+        List<Route> routes = search.find(from, to, k);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(routes.size() + " shortest loopless paths from " + from + " to " + to + ":");
+        for (int i = 0; i < routes.size(); i++) {
+            System.out.println((i + 1) + ". " + routes.get(i));
+        }
+        System.out.printf("Found in %.1f ms%n", elapsed / 1e6);
+    }
+
+    // java LinkStateRouting                                          the example network's routing tables
+    // java LinkStateRouting <routers|topology> [degree] [runs]        SPF timing on a random or saved network
+    // java LinkStateRouting convert <edges|routers|example> <topology> [degree]   save a network as a topology file
+    // java LinkStateRouting all <routers|topology|example> [degree] [threads] [file]   every router's table, in parallel
+    // java LinkStateRouting show <file> <router>                      one router's table from that file
+    // java LinkStateRouting flap <routers|topology|example> [degree] [changes]   incremental SPF after link changes
+    // java LinkStateRouting flood <routers|topology|example> [degree] [failures] [spacing ms] [spf ms]   LSA flooding
+    // java LinkStateRouting ecmp <routers|topology|example> [degree] [runs]   SPF keeping all equal-cost next hops
+    // java LinkStateRouting paths <routers|topology|example> [degree] [from] [to] [k]   the k shortest loopless paths
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1 && args[0].equals("ecmp")) {
+            ecmp(args);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("paths")) {
+            paths(args);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("flood")) {
+            flood(args);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("flap")) {
+            flap(args);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("all")) {
+            Csr csr = network(args[1], args.length > 2 ? Integer.parseInt(args[2]) : 4);
+            int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            Path file = Paths.get(args.length > 4 ? args[4] : "routes.nht");
+            long start = System.nanoTime();
+            long bytes = AllSources.write(csr, file, threads);
+            System.out.printf("%d routing tables (%d bytes) written to %s by %d threads in %.0f ms%n",
+                    csr.vertices(), bytes, file, threads, (System.nanoTime() - start) / 1e6);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("show")) {
+            AllSources.print(Paths.get(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        if (args.length > 2 && args[0].equals("convert")) {
+            long start = System.nanoTime();
+            Csr csr = network(args[1], args.length > 3 ? Integer.parseInt(args[3]) : 4);
+            long read = System.nanoTime() - start;
+            Path file = Paths.get(args[2]);
+            start = System.nanoTime();
+            csr.write(file);
+            long written = System.nanoTime() - start;
+            System.out.printf("%d routers, %d links: read in %.0f ms, written to %s (%d bytes) in %.0f ms%n",
+                    csr.vertices(), csr.entries() / 2, read / 1e6, file, Files.size(file), written / 1e6);
+            return;
+        }
+        if (args.length > 0) {
+            int degree = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+            long start = System.nanoTime();
+            Csr csr = network(args[0], degree);
+            int vertices = csr.vertices();
+            System.out.printf("Loaded %d routers, %d links in %.1f ms%n",
+                    vertices, csr.entries() / 2, (System.nanoTime() - start) / 1e6);
+
+            Dijkstra dijkstra = new Dijkstra(csr);
+            ShortestPaths paths = new ShortestPaths(vertices);
+            int[] nextHop = new int[vertices];
+            for (int run = 0; run < runs; run++) {
+                int src = run * (vertices / Math.max(1, runs));
+                start = System.nanoTime();
+                dijkstra.run(src, paths);
+                paths.nextHops(nextHop);
+                long farthest = 0;
+                for (int d : paths.dist) {
+                    if (d != INFINITY) { // Routers cut off from src
+                        farthest = Math.max(farthest, d);
+                    }
+                }
+                System.out.printf("SPF from %d: %.0f ms, %d reachable, farthest cost %d%n",
+                        src, (System.nanoTime() - start) / 1e6, paths.settled, farthest);
+            }
+            return;
+        }
+
+        Graph graph = sampleNetwork();
 
         // Calculate shortest path from all nodes
-        for (int i = 0; i < vertices; i++) {
-            graph.dijkstra(i);
+        int[] nextHop = new int[graph.vertices()];
+        for (int i = 0; i < graph.vertices(); i++) {
+            ShortestPaths paths = graph.dijkstra(i);
+            printSolution(paths, paths.nextHops(nextHop));
         }
     }
 }
 */
 
 ### How This Works:
-1. **Graph Representation**: The network is represented using an adjacency list where each node has a list of all connected nodes along with the cost to reach them.
-2. **Dijkstra's Algorithm**: This algorithm is used by each node to calculate the shortest path to every other node in the network.
-3. **Priority Queue**: It's used to always expand the least costly node not yet processed, ensuring that the shortest path is found in an efficient manner.
+1. **Graph Representation**: Links are collected in plain `int` arrays and packed into a compressed sparse row (CSR) layout: one `offsets` array says where each router's links start, and the `targets` and `weights` arrays hold the links of router 0, then router 1, and so on. Each undirected link appears once in each direction. There is no object per link, so a network with millions of routers and links is a handful of arrays.
+2. **Dijkstra's Algorithm**: This algorithm is used by each node to calculate the shortest path to every other node in the network. `dijkstra` returns the cost and predecessor of every router rather than printing them. Following predecessors back from a destination gives its path, and walking them in the order routers were settled gives each destination's next hop, the neighbour a packet is handed to first. Printing is a separate step.
+3. **Indexed Heap**: The routers still to be settled are kept in a binary heap of `int`s with a position index. When a shorter path to a router that is already queued is found, its key is lowered in place (decrease-key) instead of queueing a duplicate, so the heap never holds more than one entry per router. A `Dijkstra` object reuses its heap and result arrays across runs, so repeated SPF calculations allocate nothing.
+4. **All Routers at Once**: The `all` mode computes every router's table on a fork-join pool. The routers are split in halves until each block is small, and each worker thread keeps its own `Dijkstra`, result arrays and output buffer, so the work needs no locking and scales with the number of cores. Each table is stored compactly: for every destination, the position of the next hop in the router's own neighbour list, which is one byte for routers with fewer than 254 links. Every table has the same size, so each worker writes its tables straight to their final place in the file with positional `FileChannel` writes. Memory stays at a few arrays per thread however large the network, and `show` maps just one router's table back in to print it.
+5. **Reacting to Link Changes**: Real link costs change and links go up and down, and rerunning Dijkstra over the whole network for every change is wasteful. A `Topology` holds the links in per-router `int` arrays that can be edited, and an `IncrementalSpf` keeps one router's shortest-path tree up to date. When a link gets cheaper or is added, only routes that improve through it are touched, starting from its far end. When a link gets dearer or goes down, nothing changes unless the link is in the tree; if it is, only the subtree below it is reset, reconnected through its cheapest links to the rest of the tree, and settled again. Each change reports exactly which destinations got a new cost or next hop.
+6. **Flooding and Convergence**: The other modes assume every router already knows the whole network. The `flood` mode simulates how that knowledge spreads after links fail. It is a discrete-event simulation: events (a link failing, a router originating or receiving an LSA, an SPF starting or finishing) wait in a time-ordered heap of plain `long`s and are processed in order. Routers that lose a link originate a new LSA with the next sequence number, at most once per `MinLSInterval` (5 s, as in OSPF), and flood it on their other links. A router installs and floods an LSA only if its sequence number is newer than its own copy, drops duplicates, and answers an older copy with its newer one. Each install starts an SPF through a throttle: 50 ms after the first change, then at least a hold time (200 ms, doubling up to 5 s) after the previous SPF, and each SPF takes as long as a real Dijkstra on the network takes on this machine. To fit 100,000 routers in one JVM, each router keeps a few `int`s of state, and the sequence numbers live in one shared hash table that only stores LSAs newer than the starting state, instead of a full database per router. The report gives the time until the last router finished its last SPF, the number of updates sent and duplicates received, the SPF runs, and checks that every router holds the newest LSA of every originator it can still reach.
+7. **Equal-Cost Multipath and Alternative Paths**: Plain Dijkstra keeps one predecessor per destination, but fabrics such as leaf-spine networks spread traffic over every path of equal cost. `Dijkstra.ecmp` keeps, for each destination, the set of the source's links that start a shortest path, as a bitset with one bit per link (a single `long` for routers with up to 64 links). When a path of the same cost arrives, the sets are ORed; when a cheaper one arrives, the set is replaced. The bitsets live in one flat array reused by every run, so even a million destinations need only 8 MB. For traffic engineering, `KShortestPaths` answers "the k cheapest loopless paths from A to B" with Yen's algorithm: each new path is the cheapest detour from some router on an earlier path, avoiding the links those paths already took. Each detour search is an A* search that uses the costs to the target in the full network, computed once per target, as its estimate, so it goes almost straight to the target instead of exploring the whole network.
+8. **Loading Topologies from Disk**: Building a network from `addEdge` calls, or parsing a text file of links, means reading every link and allocating the arrays each time the program starts. The `convert` mode does that once and saves the CSR arrays in a binary file: a 16-byte header (magic `CSR1`, routers, entries), then the offsets, targets and weights as big-endian `int`s, the same layout the routing table files use. Every mode accepts such a file in place of a router count, and loading it maps the three sections into memory with `FileChannel.map` instead of reading them. Since `Csr` holds its arrays as `IntBuffer`s, the mapped sections are used directly, with no copy on the Java heap, and the operating system shares their pages between processes. Loading still makes one sequential pass over the file to check that the offsets never decrease and that every target is a router and every cost is at most 65535, so a damaged file is refused up front. `convert` writes a temporary file and renames it over the target, which also makes converting a topology file onto itself safe. Edge lists for `convert` have one link per line, `u v [cost]` (routers numbered from 0 up to 536870909, the most a topology file can hold; cost 1 if omitted, at most 65535), with `#` comments, and are parsed straight from bytes.
 
 ### Running the Program:
 1. **Save the code** in a file named `LinkStateRouting.java`.
@@ -117,4 +2065,50 @@ public class LinkStateRouting {
 
    java LinkStateRouting
 
-Each node (router) computes the shortest path to every other node, simulating the process of building a routing table based on link-state information. This program is a static simulation and doesn't include the dynamic exchange of LSAs or handling changes in the network topology dynamically.
\ No newline at end of file
+   To time the algorithm on a large random network instead, give the number of routers, links per router and runs:
+
+   java LinkStateRouting 1000000 4 5
+
+   To compute the routing tables of every router in parallel and write them to a file, then print one of them:
+
+   java LinkStateRouting all example
+
+   java LinkStateRouting show routes.nht 0
+
+   For a random network, pass the number of routers, links per router, threads and file name instead, e.g. `java LinkStateRouting all 20000 4 32 routes.nht`. The file holds one byte per router pair, so 20,000 routers need about 400 MB.
+
+   To watch router 0 of the example repair its table as links change, or to time thousands of random link changes on a large network against a full recomputation:
+
+   java LinkStateRouting flap example
+
+   java LinkStateRouting flap 1000000 4 20000
+
+   To simulate LSA flooding and SPF throttling after two link failures 100 ms apart in the example, or after a number of random failures in a large network, give the routers, links per router, failures, their spacing in ms, and optionally the SPF throttle as initial/hold/max in ms:
+
+   java LinkStateRouting flood example
+
+   java LinkStateRouting flood 100000 4 20 10 20/100/2000
+
+   To print a leaf's routing table with all its equal-cost next hops in a small leaf-spine fabric (4 spines, 6 leaves), or to time ECMP SPF on a large random network:
+
+   java LinkStateRouting ecmp example
+
+   java LinkStateRouting ecmp 1000000 4 3
+
+   To list the k shortest loopless paths between two routers of the example (0 to 4), or of a random network (routers, links per router, from, to, k):
+
+   java LinkStateRouting paths example
+
+   java LinkStateRouting paths 1000000 4 0 500000 10
+
+   To save a network as a topology file, from an edge list, the example or a random network (routers and links per router), and then use the file in any mode:
+
+   java LinkStateRouting convert links.txt topology.csr
+
+   java LinkStateRouting convert 1000000 topology.csr 4
+
+   java LinkStateRouting topology.csr
+
+   java LinkStateRouting all topology.csr 4 8 routes.nht
+
+Each node (router) computes the shortest path to every other node, simulating the process of building a routing table based on link-state information. Except in the `flood` mode, the simulation doesn't model the exchange of LSAs between routers; link changes are applied to the topology directly.
\ No newline at end of file
@@ -0,0 +1,293 @@
+Testing protocols such as Go-Back-N, Selective Repeat or the UDP chat on a single machine is not very informative: loopback never loses, delays or reorders anything. A network emulator fixes that by sitting between the two programs and damaging the traffic on purpose, the way Linux `netem` does, but in plain Java so it runs anywhere without root.
+
+### How It Works
+
+The emulator is a UDP proxy. The sender talks to the emulator's port instead of the receiver's; the emulator forwards each datagram to the real receiver and passes replies back the same way. On the way through, every datagram may be:
+
+1. **Dropped** with probability `loss`.
+2. **Delayed** by `delay` milliseconds, plus or minus a uniform `jitter`.
+3. **Reordered**: with probability `reorder` a datagram skips the delay and overtakes the ones queued before it.
+4. **Duplicated** with probability `duplicate`.
+5. **Rate limited** to `rate` kbit/s, queueing datagrams behind each other like a slow link.
+6. **Tail-dropped** when `limit` datagrams (1000 by default, as in Linux `netem`) are already queued in that direction, the way a real bottleneck's buffer overflows. Without this, a rate cap below the offered load would queue without bound and report ever-growing delay instead of loss.
+
+All random choices come from a seeded `Random` per direction, so the same settings and seed produce the same decisions on every run.
+
+### Java Code for the Network Emulator
+
+#### `NetEmulator.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+
+public class NetEmulator {
+    private static final int MAX_DATAGRAM = 65507;
+    private static final int MIN_SIZE_CLASS = 6; // Smallest pooled buffer, 64 bytes
+
+    // Impairment settings and state for one direction of traffic
+    static class Link {
+        final String name;
+        final double loss;
+        final long delayNanos;
+        final long jitterNanos;
+        final double reorder;
+        final double duplicate;
+        final long kbps; // 0 means unlimited
+        final int limit; // Most datagrams queued at once; more are tail-dropped
+        final Random random;
+
+        long linkFreeAt; // When the rate-limited link finishes sending what is already queued
+        long carried; // Remainder of the busy time, in nanoseconds / kbps, so no rate is rounded
+        int queued;
+        long forwarded, dropped, overflowed, duplicated, reordered;
+
+        Link(String name, Map<String, String> options, long seed) {
+            this.name = name;
+            this.loss = Double.parseDouble(options.getOrDefault("loss", "0"));
+            this.delayNanos = (long) (Double.parseDouble(options.getOrDefault("delay", "0")) * 1_000_000);
+            this.jitterNanos = (long) (Double.parseDouble(options.getOrDefault("jitter", "0")) * 1_000_000);
+            this.reorder = Double.parseDouble(options.getOrDefault("reorder", "0"));
+            this.duplicate = Double.parseDouble(options.getOrDefault("duplicate", "0"));
+            this.kbps = Long.parseLong(options.getOrDefault("rate", "0"));
+            this.limit = Integer.parseInt(options.getOrDefault("limit", "1000"));
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be at least 1");
+            }
+            this.random = new Random(seed);
+        }
+
+        // Returns when the datagram should leave, or -1 if it is lost or the queue is full
+        long schedule(long now, int length) {
+            if (random.nextDouble() < loss) {
+                dropped++;
+                return -1;
+            }
+            if (queued == limit) {
+                overflowed++;
+                return -1;
+            }
+            long departure = now;
+            if (random.nextDouble() < reorder) {
+                reordered++; // Skips the delay and overtakes queued datagrams
+            } else {
+                long jitter = jitterNanos > 0 ? (long) ((random.nextDouble() * 2 - 1) * jitterNanos) : 0;
+                departure += Math.max(0, delayNanos + jitter);
+            }
+            if (kbps > 0) {
+                long busy = length * 8_000_000L + carried; // A byte takes 8_000_000 / kbps nanoseconds
+                carried = busy % kbps;
+                departure = Math.max(departure, linkFreeAt) + busy / kbps;
+                linkFreeAt = departure;
+            }
+            queued++;
+            forwarded++;
+            return departure;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d forwarded, %d dropped, %d overflowed, %d duplicated, %d reordered",
+                    name, forwarded, dropped, overflowed, duplicated, reordered);
+        }
+    }
+
+    // A datagram waiting for its departure time
+    static class Packet {
+        final byte[] data; // A power of two at least as long as the datagram
+        int length;
+        long departure;
+        long order; // Tie-breaker so equal departure times keep arrival order
+        Link link;
+        DatagramChannel out;
+        SocketAddress target;
+
+        Packet(int sizeClass) {
+            this.data = new byte[1 << sizeClass];
+        }
+    }
+
+    private final DatagramChannel front; // Faces the clients
+    private final InetSocketAddress backend;
+    private final Selector selector;
+    private final Link upstream;
+    private final Link downstream;
+    private final Map<SocketAddress, DatagramChannel> sessions = new HashMap<>();
+    private final PriorityQueue<Packet> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Packet p) -> p.departure).thenComparingLong(p -> p.order));
+    private final List<ArrayDeque<Packet>> freePackets = new ArrayList<>(); // Indexed by size class
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+    private long order;
+
+    public NetEmulator(int listenPort, InetSocketAddress backend, Map<String, String> options) throws IOException {
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        this.backend = backend;
+        this.upstream = new Link("client -> server", options, seed);
+        this.downstream = new Link("server -> client", options, seed + 1);
+        for (int sizeClass = 0; sizeClass <= sizeClass(MAX_DATAGRAM); sizeClass++) {
+            freePackets.add(new ArrayDeque<>());
+        }
+        this.selector = Selector.open();
+        this.front = DatagramChannel.open();
+        front.bind(new InetSocketAddress(listenPort));
+        front.configureBlocking(false);
+        front.register(selector, SelectionKey.OP_READ);
+    }
+
+    public void run() throws IOException {
+        while (true) {
+            Packet head = queue.peek();
+            long now = System.nanoTime();
+            if (head == null) {
+                selector.select();
+            } else if (head.departure > now) {
+                // select(timeout) takes milliseconds; 0 would mean forever
+                selector.select(Math.max(1, (head.departure - now) / 1_000_000));
+            } else {
+                selector.selectNow();
+            }
+
+            for (SelectionKey key : selector.selectedKeys()) {
+                DatagramChannel channel = (DatagramChannel) key.channel();
+                if (channel == front) {
+                    readFromClients();
+                } else {
+                    readFromServer(channel, (SocketAddress) key.attachment());
+                }
+            }
+            selector.selectedKeys().clear();
+            release(System.nanoTime());
+        }
+    }
+
+    private void readFromClients() throws IOException {
+        SocketAddress client;
+        while ((client = receive(front)) != null) {
+            DatagramChannel session = sessions.get(client);
+            if (session == null) {
+                // Each client gets its own upstream socket, so replies can be routed back to it
+                session = DatagramChannel.open();
+                session.connect(backend);
+                session.configureBlocking(false);
+                session.register(selector, SelectionKey.OP_READ, client);
+                sessions.put(client, session);
+            }
+            enqueue(upstream, session, null);
+        }
+    }
+
+    private void readFromServer(DatagramChannel session, SocketAddress client) throws IOException {
+        while (receive(session) != null) {
+            enqueue(downstream, front, client);
+        }
+    }
+
+    private SocketAddress receive(DatagramChannel channel) throws IOException {
+        buffer.clear();
+        try {
+            SocketAddress from = channel.receive(buffer);
+            buffer.flip();
+            return from;
+        } catch (PortUnreachableException e) {
+            return null; // The server is not up; its datagram is simply lost
+        }
+    }
+
+    private void enqueue(Link link, DatagramChannel out, SocketAddress target) {
+        long now = System.nanoTime();
+        int copies = link.random.nextDouble() < link.duplicate ? 2 : 1;
+        if (copies == 2) {
+            link.duplicated++;
+        }
+        for (int i = 0; i < copies; i++) {
+            long departure = link.schedule(now, buffer.remaining());
+            if (departure < 0) {
+                continue;
+            }
+            int sizeClass = sizeClass(buffer.remaining());
+            Packet packet = freePackets.get(sizeClass).isEmpty() ? new Packet(sizeClass) : freePackets.get(sizeClass).pop();
+            packet.length = buffer.remaining();
+            buffer.get(buffer.position(), packet.data, 0, packet.length);
+            packet.departure = departure;
+            packet.order = order++;
+            packet.link = link;
+            packet.out = out;
+            packet.target = target;
+            queue.add(packet);
+        }
+    }
+
+    private void release(long now) throws IOException {
+        while (!queue.isEmpty() && queue.peek().departure <= now) {
+            Packet packet = queue.poll();
+            ByteBuffer data = ByteBuffer.wrap(packet.data, 0, packet.length);
+            try {
+                if (packet.target == null) {
+                    packet.out.write(data);
+                } else {
+                    packet.out.send(data, packet.target);
+                }
+            } catch (PortUnreachableException e) {
+                // Lost on the far side
+            }
+            packet.link.queued--;
+            packet.link = null;
+            packet.out = null;
+            packet.target = null;
+            freePackets.get(sizeClass(packet.data.length)).push(packet);
+        }
+    }
+
+    // log2 of the smallest pooled buffer that holds 'length' bytes
+    private static int sizeClass(int length) {
+        return length <= 1 << MIN_SIZE_CLASS ? MIN_SIZE_CLASS : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java NetEmulator <listenPort> <serverHost> <serverPort> "
+                    + "[loss=0.01] [delay=ms] [jitter=ms] [reorder=0.01] [duplicate=0.001] [rate=kbit/s] [limit=1000] [seed=1]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        int listenPort = Integer.parseInt(args[0]);
+        InetSocketAddress backend = new InetSocketAddress(args[1], Integer.parseInt(args[2]));
+        NetEmulator emulator = new NetEmulator(listenPort, backend, options);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(emulator.upstream);
+            System.out.println(emulator.downstream);
+        }));
+
+        System.out.println("Emulating " + options + " between port " + listenPort + " and " + backend);
+        emulator.run();
+    }
+}
+*/
+
+### Running the Emulator
+
+1. **Compile the Program**:
+
+   javac NetEmulator.java
+
+2. **Start the receiver** of whatever protocol you are testing, for example the Go-Back-N receiver from the sliding window programs:
+
+   java GoBackNReceiver 9876 0 -q
+
+3. **Start the emulator** between port 9000 and the receiver, with the impairments you want:
+
+   java NetEmulator 9000 localhost 9876 loss=0.02 delay=20 jitter=5 reorder=0.01 duplicate=0.001 rate=50000 seed=7
+
+4. **Point the sender at the emulator** instead of the receiver:
+
+   java GoBackNSender localhost 9000 20000
+
+Swap in `SelectiveRepeatReceiver`/`SelectiveRepeatSender` with the same emulator settings and seed to compare the two protocols' goodput. For `UDPPeerChat`, which always sends to port 6789, run the emulator on 6789 with the other peer listening on a different port. Press Ctrl+C to stop the emulator; it prints how many datagrams it forwarded, dropped at random, dropped because the queue was full (`overflowed`), duplicated and reordered in each direction.
@@ -0,0 +1,706 @@
+A router forwards each packet by finding the most specific route that contains the destination address, the **longest prefix match**. If the table holds both `10.0.0.0/8` and `10.1.2.0/24`, a packet for `10.1.2.3` follows the `/24` and a packet for `10.9.9.9` follows the `/8`. The subnet calculator can produce prefixes and the link state simulation can work out next hops, but until now nothing could answer "which route does this address use?" without checking every prefix in turn.
+
+### How It Works
+
+`PrefixTable` is a multibit trie over IPv4 addresses with strides of 16, 8 and 8 bits, the layout used by DIR-16-8-8 style forwarding tables:
+
+- **Level 0** is one array of 65,536 entries indexed by the top 16 bits of the address.
+- **Levels 1 and 2** are chunks of 256 entries, indexed by the next 8 bits and the last 8 bits. A chunk is only created under a level 0 or level 1 entry that holds a prefix longer than that level.
+
+All levels live in one `int[]`. An entry is either a route (the next hop plus one, with 0 meaning "no route") or, if negative, the position of a child chunk. A lookup therefore takes at most three array reads and no comparisons against prefixes at all:
+
+    int e = entries[address >>> 16];
+    if (e < 0) e = entries[~e + (address >>> 8 & 0xFF)];
+    if (e < 0) e = entries[~e + (address & 0xFF)];
+    return e - 1;
+
+Each prefix is expanded to cover every entry it spans at its level (a `/14` fills four level 0 entries, a `/20` fills sixteen entries of a level 1 chunk). A parallel `byte[]` remembers the length of the prefix that wrote each entry, so a shorter prefix inserted later never overwrites a longer one. Deleting a prefix puts back the next shorter prefix that covers it, which is found in a small open-addressing map holding the exact routes. There are no per-node objects anywhere in the structure.
+
+### Java Code for the Prefix Table
+
+#### `PrefixTable.java`
+
+/*
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+
+public class PrefixTable {
+    public static final int NO_ROUTE = -1;
+
+    private static final int ROOT_SIZE = 1 << 16;
+    private static final int CHUNK = 256;
+    private static final long EMPTY = -1;
+
+    // Level 0 followed by the 256-entry chunks: next hop + 1, 0 for none, or ~offset of a child chunk
+    private int[] entries = new int[ROOT_SIZE + 16 * CHUNK];
+    // Length of the prefix that wrote each route entry
+    private byte[] lengths = new byte[entries.length];
+    private int used = ROOT_SIZE;
+
+    // Exact routes, keyed by prefix << 6 | length; used to find what a deleted prefix uncovers
+    private long[] keys = new long[64];
+    private int[] hops = new int[64];
+    private int size;
+
+    public PrefixTable() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public static int mask(int length) {
+        return length == 0 ? 0 : -1 << (32 - length);
+    }
+
+    // The next hop for the longest prefix containing 'address', or NO_ROUTE
+    public int lookup(int address) {
+        int[] table = entries;
+        int e = table[address >>> 16];
+        if (e < 0) {
+            e = table[~e + (address >>> 8 & 0xFF)];
+            if (e < 0) {
+                e = table[~e + (address & 0xFF)];
+            }
+        }
+        return e - 1;
+    }
+
+    // Adds or replaces a route; returns true if the prefix was new
+    public boolean insert(int prefix, int length, int nextHop) {
+        if (length < 0 || length > 32 || nextHop < 0 || nextHop == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad route /" + length + " -> " + nextHop);
+        }
+        prefix &= mask(length);
+        boolean added = put(key(prefix, length), nextHop);
+        int offset = chunkFor(prefix, length, true);
+        update(offset, slot(prefix, length), span(length), length, false, nextHop + 1, length);
+        return added;
+    }
+
+    // Removes a route; returns false if it was not in the table
+    public boolean delete(int prefix, int length) {
+        if (length < 0 || length > 32) {
+            return false;
+        }
+        prefix &= mask(length);
+        int index = find(key(prefix, length));
+        if (keys[index] == EMPTY) {
+            return false;
+        }
+        remove(index);
+
+        // The next shorter route covering this prefix takes its place
+        int entry = 0;
+        int coveringLength = 0;
+        for (int l = length - 1; l >= 0; l--) {
+            int covering = find(key(prefix & mask(l), l));
+            if (keys[covering] != EMPTY) {
+                entry = hops[covering] + 1;
+                coveringLength = l;
+                break;
+            }
+        }
+        int offset = chunkFor(prefix, length, false);
+        update(offset, slot(prefix, length), span(length), length, true, entry, coveringLength);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Bytes used by the lookup arrays
+    public long memoryBytes() {
+        return (long) used * 5;
+    }
+
+    // The chunk whose entries a prefix of this length expands into
+    private int chunkFor(int prefix, int length, boolean create) {
+        if (length <= 16) {
+            return 0;
+        }
+        int offset = child(prefix >>> 16, create);
+        if (length <= 24) {
+            return offset;
+        }
+        return child(offset + (prefix >>> 8 & 0xFF), create);
+    }
+
+    private static int slot(int prefix, int length) {
+        return length <= 16 ? prefix >>> 16 : length <= 24 ? prefix >>> 8 & 0xFF : prefix & 0xFF;
+    }
+
+    private static int span(int length) {
+        return 1 << ((length <= 16 ? 16 : length <= 24 ? 24 : 32) - length);
+    }
+
+    // Insert overwrites entries written by prefixes no longer than 'length'; delete
+    // overwrites only the entries written by the deleted prefix itself
+    private void update(int offset, int from, int count, int length, boolean delete, int entry, int entryLength) {
+        for (int i = offset + from; i < offset + from + count; i++) {
+            int e = entries[i];
+            if (e < 0) {
+                update(~e, 0, CHUNK, length, delete, entry, entryLength);
+            } else if (delete ? e != 0 && lengths[i] == length : lengths[i] <= length) {
+                entries[i] = entry;
+                lengths[i] = (byte) entryLength;
+            }
+        }
+    }
+
+    // The chunk below entry i, created on demand with the entry's route pushed down into it
+    private int child(int i, boolean create) {
+        int e = entries[i];
+        if (e < 0) {
+            return ~e;
+        }
+        if (!create) {
+            throw new IllegalStateException("missing chunk for an existing route");
+        }
+        if (used + CHUNK > entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+            lengths = Arrays.copyOf(lengths, entries.length);
+        }
+        int offset = used;
+        used += CHUNK;
+        Arrays.fill(entries, offset, offset + CHUNK, e);
+        Arrays.fill(lengths, offset, offset + CHUNK, lengths[i]);
+        entries[i] = ~offset;
+        return offset;
+    }
+
+    private static long key(int prefix, int length) {
+        return (prefix & 0xFFFFFFFFL) << 6 | length;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int i = home(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static int home(long key) {
+        return (int) (key * 0x9E3779B97F4A7C15L >>> 32);
+    }
+
+    private boolean put(long key, int hop) {
+        int i = find(key);
+        boolean added = keys[i] == EMPTY;
+        keys[i] = key;
+        hops[i] = hop;
+        if (added && ++size * 2 > keys.length) {
+            long[] oldKeys = keys;
+            int[] oldHops = hops;
+            keys = new long[oldKeys.length * 2];
+            hops = new int[keys.length];
+            Arrays.fill(keys, EMPTY);
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int k = find(oldKeys[j]);
+                    keys[k] = oldKeys[j];
+                    hops[k] = oldHops[j];
+                }
+            }
+        }
+        return added;
+    }
+
+    // Linear probing removal: shift later entries of the same probe run back into the hole
+    private void remove(int hole) {
+        int mask = keys.length - 1;
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (keys[i] == EMPTY) {
+                break;
+            }
+            int home = home(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                hops[hole] = hops[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    // Routes for router 'src' of the link state example: router i owns the i-th /24 of 'base',
+    // and each one is reached through the next hop Dijkstra found for it
+    static PrefixTable fromLinkState(LinkStateRouting.Graph graph, int src, SubnetCalculator.Prefix base) {
+        int[] nextHop = graph.dijkstra(src).nextHops(new int[graph.vertices()]);
+        PrefixTable table = new PrefixTable();
+        for (int router = 0; router < graph.vertices(); router++) {
+            if (nextHop[router] >= 0) {
+                table.insert((int) base.low() + (router << 8), 24, nextHop[router]);
+            }
+        }
+        return table;
+    }
+
+    // Lines of "prefix nextHop", e.g. "10.1.0.0/16 3"; prefixes are parsed by SubnetCalculator
+    static PrefixTable fromRoutes(BufferedReader reader) throws IOException {
+        PrefixTable table = new PrefixTable();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            SubnetCalculator.Prefix prefix = SubnetCalculator.parsePrefix(fields[0]);
+            if (!prefix.ipv4()) {
+                throw new IllegalArgumentException("only IPv4 routes are supported: " + fields[0]);
+            }
+            table.insert((int) prefix.low(), prefix.length(), Integer.parseInt(fields[1]));
+        }
+        return table;
+    }
+
+    // java PrefixTable [routesFile]; then enter addresses to look up ("-prefix" deletes a route)
+    public static void main(String[] args) throws IOException {
+        PrefixTable table;
+        if (args.length > 0) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]))) {
+                table = fromRoutes(reader);
+            }
+        } else {
+            table = fromLinkState(LinkStateRouting.sampleNetwork(), 0, SubnetCalculator.parsePrefix("10.0.0.0/16"));
+            table.insert(0, 0, 0); // Default route, delivered locally
+            System.out.println("Router 0 of the link state example: 10.0.<router>.0/24 for routers 0-4");
+        }
+        System.out.println(table.size() + " routes loaded. Enter an address to look up, or -prefix/len to delete a route:");
+
+        BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = input.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                if (line.startsWith("-")) {
+                    SubnetCalculator.Prefix prefix = SubnetCalculator.parsePrefix(line.substring(1));
+                    System.out.println(table.delete((int) prefix.low(), prefix.length()) ? "Deleted" : "No such route");
+                    continue;
+                }
+                long address = AddressParser.parseIPv4(line);
+                if (address < 0) {
+                    System.out.println("Error: not an IPv4 address: " + line);
+                    continue;
+                }
+                int hop = table.lookup((int) address);
+                System.out.println(hop == NO_ROUTE ? "No route" : "Next hop: " + hop);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+        }
+    }
+}
+*/
+
+#### `PrefixTableBenchmark.java`
+
+JMH is not one of the dependencies of these programs, so the comparison is a plain `System.nanoTime` benchmark: it builds a table of random routes with a realistic spread of lengths (mostly `/24`, then `/16` to `/23`, a few longer than `/24`), checks that `PrefixTable` and a linear scan agree on every probe, and then times both. The linear scan walks the routes sorted longest first and stops at the first match, which is the best a scan can do.
+
+/*
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class PrefixTableBenchmark {
+
+    static int randomLength(Random random) {
+        int r = random.nextInt(100);
+        return r < 55 ? 24 : r < 90 ? 16 + random.nextInt(8) : r < 97 ? 8 + random.nextInt(8) : 25 + random.nextInt(8);
+    }
+
+    // java PrefixTableBenchmark [routes] [lookups]
+    public static void main(String[] args) {
+        int routes = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        Random random = new Random(42);
+
+        int[] prefixes = new int[routes];
+        int[] lengths = new int[routes];
+        int[] hops = new int[routes];
+        PrefixTable table = new PrefixTable();
+        Set<Long> distinct = new HashSet<>();
+        for (int i = 0; i < routes; i++) {
+            do { // Distinct prefixes, so the scan and the table agree on which route wins
+                lengths[i] = randomLength(random);
+                prefixes[i] = random.nextInt() & PrefixTable.mask(lengths[i]);
+            } while (!distinct.add((long) prefixes[i] << 6 | lengths[i]));
+            hops[i] = random.nextInt(64);
+        }
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < routes; i++) {
+            table.insert(prefixes[i], lengths[i], hops[i]);
+        }
+        long buildNanos = System.nanoTime() - buildStart;
+
+        // Delete and re-add a tenth of the routes to exercise delete
+        for (int i = 0; i < routes; i += 10) {
+            table.delete(prefixes[i], lengths[i]);
+        }
+        for (int i = 0; i < routes; i += 10) {
+            table.insert(prefixes[i], lengths[i], hops[i]);
+        }
+
+        // Linear scan: longest first, first match wins
+        Integer[] order = new Integer[routes];
+        for (int i = 0; i < routes; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> lengths[b] - lengths[a]);
+        int[] scanPrefix = new int[routes];
+        int[] scanMask = new int[routes];
+        int[] scanHop = new int[routes];
+        for (int i = 0; i < routes; i++) {
+            scanPrefix[i] = prefixes[order[i]];
+            scanMask[i] = PrefixTable.mask(lengths[order[i]]);
+            scanHop[i] = hops[order[i]];
+        }
+
+        // Half the probes fall inside a known route, half are random
+        int[] addresses = new int[1 << 20];
+        for (int i = 0; i < addresses.length; i++) {
+            int r = random.nextInt(routes);
+            addresses[i] = (i & 1) == 0 ? prefixes[r] | (random.nextInt() & ~PrefixTable.mask(lengths[r])) : random.nextInt();
+        }
+
+        int scanLookups = Math.max(1, Math.min(lookups, 2_000_000_000 / routes / 10));
+        long scanStart = System.nanoTime();
+        long scanChecksum = 0;
+        for (int i = 0; i < scanLookups; i++) {
+            int address = addresses[i & (addresses.length - 1)];
+            int hop = PrefixTable.NO_ROUTE;
+            for (int j = 0; j < routes; j++) {
+                if ((address & scanMask[j]) == scanPrefix[j]) {
+                    hop = scanHop[j];
+                    break;
+                }
+            }
+            if (hop != table.lookup(address)) {
+                throw new IllegalStateException("mismatch for " + AddressParser.formatIPv4(address));
+            }
+            scanChecksum += hop;
+        }
+        long scanNanos = System.nanoTime() - scanStart;
+
+        long checksum = 0;
+        for (int round = 0; round < 3; round++) { // Warm-up
+            for (int i = 0; i < addresses.length; i++) {
+                checksum += table.lookup(addresses[i]);
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            checksum += table.lookup(addresses[i & (addresses.length - 1)]);
+        }
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf("%d routes inserted in %.1f ms, %.1f MB of lookup arrays%n",
+                table.size(), buildNanos / 1e6, table.memoryBytes() / 1e6);
+        System.out.printf("PrefixTable:  %,.0f lookups/s (%.1f ns each)%n", lookups * 1e9 / nanos, (double) nanos / lookups);
+        System.out.printf("Linear scan:  %,.0f lookups/s (%.1f ns each, %d lookups, all matched the table)%n",
+                scanLookups * 1e9 / scanNanos, (double) scanNanos / scanLookups, scanLookups);
+        if (checksum + scanChecksum == 42) {
+            System.out.println(); // Keeps the lookups from being optimised away
+        }
+    }
+}
+*/
+
+### Prefix Aggregation
+
+A full BGP table holds close to a million IPv4 prefixes, many of them adjacent or nested (`10.0.0.0/24` and `10.0.1.0/24` are together just `10.0.0.0/23`). `PrefixAggregator` reduces such a list to the smallest set of prefixes covering exactly the same addresses, and compares two lists: the addresses in one but not the other (difference) and the addresses in both (intersection).
+
+Each prefix is turned into a range of addresses `[first, last]` packed into one `long`, with the sign bit flipped so that `Arrays.sort` on the raw `long`s orders them by `first`. After sorting, a single sweep merges every range that overlaps or touches the previous one, and difference and intersection are single sweeps over two merged lists. Only at the end are ranges cut back into CIDR blocks, taking the largest aligned block at each step.
+
+The reader parses bytes straight from the input without creating a `String` per line. Ranges collect in a `long[]`, which is sorted and merged in place whenever it fills and only grows if merging did not free half of it. Memory therefore follows the size of the merged result, not the length of the input.
+
+#### `PrefixAggregator.java`
+
+/*
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class PrefixAggregator {
+    private static final long LOW = 0xFFFFFFFFL;
+
+    private PrefixAggregator() {
+    }
+
+    // [first, last] as one long; flipping the sign bit makes signed order equal unsigned order
+    static long range(long first, long last) {
+        return (first << 32 | last) ^ Long.MIN_VALUE;
+    }
+
+    static long first(long range) {
+        return (range ^ Long.MIN_VALUE) >>> 32;
+    }
+
+    static long last(long range) {
+        return range & LOW;
+    }
+
+    // Sorts ranges[0..count) and merges overlapping or adjacent ones in place; returns the new count
+    static int merge(long[] ranges, int count) {
+        Arrays.sort(ranges, 0, count);
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            long range = ranges[i];
+            if (out > 0 && first(range) <= last(ranges[out - 1]) + 1) {
+                if (last(range) > last(ranges[out - 1])) {
+                    ranges[out - 1] = range(first(ranges[out - 1]), last(range));
+                }
+            } else {
+                ranges[out++] = range;
+            }
+        }
+        return out;
+    }
+
+    public static long[] union(long[] a, long[] b) {
+        long[] all = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        return Arrays.copyOf(all, merge(all, all.length));
+    }
+
+    // Addresses in a but not in b; both must be merged
+    public static long[] difference(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int count = 0;
+        int j = 0;
+        for (long range : a) {
+            long current = first(range);
+            long last = last(range);
+            while (j < b.length && last(b[j]) < current) {
+                j++;
+            }
+            for (int k = j; k < b.length && first(b[k]) <= last && current <= last; k++) {
+                if (first(b[k]) > current) {
+                    out[count++] = range(current, first(b[k]) - 1);
+                }
+                current = Math.max(current, last(b[k]) + 1);
+            }
+            if (current <= last) {
+                out[count++] = range(current, last);
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    // Addresses in both a and b; both must be merged
+    public static long[] intersection(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            long first = Math.max(first(a[i]), first(b[j]));
+            long last = Math.min(last(a[i]), last(b[j]));
+            if (first <= last) {
+                out[count++] = range(first, last);
+            }
+            if (last(a[i]) < last(b[j])) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    public static long addresses(long[] ranges) {
+        long total = 0;
+        for (long range : ranges) {
+            total += last(range) - first(range) + 1;
+        }
+        return total;
+    }
+
+    // Writes the ranges as the fewest CIDR prefixes, one per line; returns how many were written
+    public static long write(long[] ranges, Writer out) throws IOException {
+        StringBuilder text = new StringBuilder(1 << 17);
+        long prefixes = 0;
+        for (long range : ranges) {
+            long first = first(range);
+            long last = last(range);
+            while (first <= last) {
+                // The largest block aligned at 'first' that does not run past 'last'
+                int bits = first == 0 ? 32 : Long.numberOfTrailingZeros(first);
+                while (first + (1L << bits) - 1 > last) {
+                    bits--;
+                }
+                AddressParser.appendIPv4(text, (int) first).append('/').append(32 - bits).append('\n');
+                prefixes++;
+                first += 1L << bits;
+                if (text.length() > (1 << 16)) {
+                    out.append(text);
+                    text.setLength(0);
+                }
+            }
+        }
+        out.append(text);
+        out.flush();
+        return prefixes;
+    }
+
+    // Streams "a.b.c.d/len" lines (a bare address means /32; anything after the prefix is ignored)
+    public static class PrefixReader {
+        private static final int MAX_LINE = 4096;
+
+        private long lines;
+        private long skipped;
+        private final int compactAt;
+
+        public PrefixReader() {
+            this(1 << 20);
+        }
+
+        public PrefixReader(int compactAt) {
+            this.compactAt = compactAt;
+        }
+
+        public long[] read(InputStream in) throws IOException {
+            long[] ranges = new long[compactAt];
+            int count = 0;
+            byte[] buffer = new byte[1 << 16];
+            Ascii text = new Ascii(buffer);
+            int filled = 0;
+            int n;
+            while (true) {
+                n = in.read(buffer, filled, buffer.length - filled);
+                int end = n < 0 ? filled : filled + n;
+                int start = 0;
+                for (int i = start; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        long range = parseLine(text, start, i);
+                        start = i + 1;
+                        if (range == -1) {
+                            continue;
+                        }
+                        if (count == ranges.length) {
+                            count = merge(ranges, count);
+                            if (count > ranges.length / 2) {
+                                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                            }
+                        }
+                        ranges[count++] = range;
+                    }
+                }
+                if (n < 0) {
+                    if (start < end) { // Last line without a newline
+                        long range = parseLine(text, start, end);
+                        if (range != -1) {
+                            if (count == ranges.length) {
+                                ranges = Arrays.copyOf(ranges, ranges.length + 1);
+                            }
+                            ranges[count++] = range;
+                        }
+                    }
+                    break;
+                }
+                filled = end - start;
+                if (filled >= MAX_LINE) {
+                    throw new IOException("line " + (lines + 1) + " is longer than " + MAX_LINE + " bytes");
+                }
+                System.arraycopy(buffer, start, buffer, 0, filled);
+            }
+            return Arrays.copyOf(ranges, merge(ranges, count));
+        }
+
+        // The line's range, or -1 (which no aligned prefix packs to) for blank, comment or unusable lines
+        private long parseLine(Ascii text, int from, int to) {
+            lines++;
+            while (from < to && text.charAt(from) <= ' ') {
+                from++;
+            }
+            if (from == to || text.charAt(from) == '#') {
+                return -1;
+            }
+            int end = from;
+            int slash = -1;
+            while (end < to && text.charAt(end) > ' ' && text.charAt(end) != ',' && text.charAt(end) != '#') {
+                if (text.charAt(end) == '/') {
+                    slash = end;
+                }
+                end++;
+            }
+            long address = AddressParser.parseIPv4(text, from, slash < 0 ? end : slash);
+            int length = slash < 0 ? 32 : 0;
+            for (int i = slash + 1; slash >= 0 && i < end && length <= 32; i++) {
+                char c = text.charAt(i);
+                length = c >= '0' && c <= '9' ? length * 10 + (c - '0') : 99;
+            }
+            if (address < 0 || length > 32 || slash == end - 1) {
+                skipped++;
+                return -1;
+            }
+            long size = 1L << (32 - length);
+            long first = address & ~(size - 1);
+            return range(first, first + size - 1);
+        }
+
+        public long lines() {
+            return lines;
+        }
+
+        // Lines that were not a valid IPv4 prefix (IPv6 prefixes included)
+        public long skipped() {
+            return skipped;
+        }
+    }
+
+    // A reusable CharSequence over ASCII bytes, so AddressParser can read the buffer directly
+    private static final class Ascii implements CharSequence {
+        private final byte[] bytes;
+
+        Ascii(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[index] & 0xFF);
+        }
+
+        @Override
+        public int length() {
+            return bytes.length;
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
+*/
+
+### Running the Programs
+
+1. **Compile** the table together with the programs it takes prefixes and routes from:
+
+   javac PrefixTable.java PrefixTableBenchmark.java SubnetCalculator.java AddressParser.java LinkStateRouting.java
+
+2. **Look up addresses** in the routing table of router 0 from the link state example, where router `i` owns `10.0.i.0/24`:
+
+   java PrefixTable
+
+   Type `10.0.4.9` to see the next hop towards router 4, or `-10.0.4.0/24` to delete that route so the address falls back to the default route. To load your own routes instead, pass a file with one `prefix nextHop` pair per line:
+
+   java PrefixTable routes.txt
+
+3. **Benchmark** the table against a linear scan, optionally with the number of routes and lookups:
+
+   java PrefixTableBenchmark 100000 10000000
+
+The table only handles IPv4. IPv6 routes would need more levels and are rejected when loading a routes file.
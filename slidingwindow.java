@@ -5,65 +5,338 @@ The Go-Back-N protocol involves sending multiple frames at once but requires tha
 
 **Java Code for Go-Back-N**
 
-I'll provide you with a simple outline and implementation for Go-Back-N:
+The sender keeps up to `windowSize` frames in flight. Every frame carries a 64-bit sequence number, so numbers never wrap during a transfer, and the receiver answers each frame with a cumulative ACK naming the next sequence number it expects. Each ACK slides the window forward by as many frames as it covers and immediately frees room for new frames, so the pipe stays full. A single retransmission timer, run by a `ScheduledExecutorService`, covers the oldest unacknowledged frame; when it fires, everything from that frame onward is sent again, which is what makes this Go-Back-N. Going back marks those frames as unsent rather than blasting them all out at once, so they are resent only as fast as the congestion window, just cut by the loss, allows.
+
+#### `ArqCodec.java`
+
+Both programs share this binary frame layout: a type byte, a flags byte, a 64-bit sequence (or ACK) number, and for data frames a 16-bit payload length followed by the payload.
+
+/*
+import java.nio.ByteBuffer;
+
+public class ArqCodec {
+    public static final byte DATA = 1;
+    public static final byte ACK = 2;
+    public static final byte SACK = 3;
+
+    public static final byte FLAG_FIN = 1; // Last frame of the transfer
+
+    public static final int HEADER_SIZE = 12; // type(1) flags(1) seq(8) length(2)
+    public static final int ACK_SIZE = 10; // type(1) flags(1) next expected seq(8)
+    public static final int SACK_SIZE = 26; // ACK header, acknowledged seq(8), bitmap(8)
+    public static final int MAX_FRAME = 1500;
+    public static final int MAX_PAYLOAD = MAX_FRAME - HEADER_SIZE;
+
+    private ArqCodec() {}
+
+    public static void encodeData(ByteBuffer out, long seq, boolean fin, byte[] payload) {
+        out.clear();
+        out.put(DATA).put(fin ? FLAG_FIN : 0).putLong(seq).putShort((short) payload.length).put(payload);
+        out.flip();
+    }
+
+    public static void encodeAck(ByteBuffer out, long nextExpected) {
+        out.clear();
+        out.put(ACK).put((byte) 0).putLong(nextExpected);
+        out.flip();
+    }
+
+    // Cumulative ACK plus the frame that triggered it; bit i of 'bitmap' acknowledges nextExpected + 1 + i
+    public static void encodeSack(ByteBuffer out, long nextExpected, long acked, long bitmap) {
+        out.clear();
+        out.put(SACK).put((byte) 0).putLong(nextExpected).putLong(acked).putLong(bitmap);
+        out.flip();
+    }
+
+    // Accessors read a received frame in place, starting at index 0 of the flipped buffer
+
+    // Returns the frame type, or 0 if the frame is too short for its type
+    public static byte type(ByteBuffer frame) {
+        if (frame.limit() < ACK_SIZE) {
+            return 0;
+        }
+        byte type = frame.get(0);
+        int required = switch (type) {
+            case DATA -> frame.limit() >= HEADER_SIZE ? HEADER_SIZE + payloadLength(frame) : HEADER_SIZE;
+            case ACK -> ACK_SIZE;
+            case SACK -> SACK_SIZE;
+            default -> Integer.MAX_VALUE;
+        };
+        return frame.limit() >= required ? type : 0;
+    }
+
+    public static boolean isFin(ByteBuffer frame) {
+        return (frame.get(1) & FLAG_FIN) != 0;
+    }
+
+    public static long seq(ByteBuffer frame) {
+        return frame.getLong(2);
+    }
+
+    public static int payloadLength(ByteBuffer frame) {
+        return frame.getShort(10) & 0xFFFF;
+    }
+
+    public static long sackedSeq(ByteBuffer frame) {
+        return frame.getLong(10);
+    }
+
+    public static long sackBitmap(ByteBuffer frame) {
+        return frame.getLong(18);
+    }
+
+    // Copies the payload of a data frame into a new array
+    public static byte[] payload(ByteBuffer frame) {
+        byte[] payload = new byte[payloadLength(frame)];
+        frame.get(HEADER_SIZE, payload);
+        return payload;
+    }
+}
+*/
 
 #### `GoBackNSender.java`
 
 /*
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.*;
 
 public class GoBackNSender {
-    private DatagramSocket socket;
-    private InetAddress address;
-    private int port;
-    private int windowSize = 4;
-    private int sequence = 0;
-
-    public GoBackNSender(String address, int port) throws SocketException, UnknownHostException {
-        this.socket = new DatagramSocket();
-        this.address = InetAddress.getByName(address);
-        this.port = port;
-    }
-
-    public void send(String[] messages) throws IOException {
-        int start = 0;
-
-        while (start < messages.length) {
-            int end = Math.min(start + windowSize, messages.length);
-            for (int i = start; i < end; i++) {
-                String message = "Frame " + sequence + ": " + messages[i];
-                byte[] buffer = message.getBytes();
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length, address, port);
-                socket.send(packet);
-                sequence = (sequence + 1) % windowSize;
+    private final DatagramChannel channel;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(ArqCodec.MAX_FRAME);
+    private final int maxWindow;
+    private final RttEstimator rtt;
+    private final CongestionController congestion;
+
+    // Per-slot state for the frames in flight, indexed by seq % maxWindow
+    private final long[] sentAt;
+    private final boolean[] resent;
+
+    private Thread ackReader;
+    private byte[][] frames; // Payloads of the current transfer
+    private long firstSeq; // Sequence number of frames[0]
+    private long base; // Oldest unacknowledged sequence number
+    private long nextSeq; // Next sequence number to send; moves back to 'base' after a loss
+    private long sentSeq; // One past the highest sequence number ever sent
+    private int duplicateAcks;
+    private long recoverSeq; // No new loss reaction until 'base' passes this point
+    private ScheduledFuture<?> retransmission;
+    private long retransmitted;
+
+    // 'maxWindow' caps the congestion window; 'initialTimeoutMillis' is the RTO before the first RTT sample
+    public GoBackNSender(String address, int port, int maxWindow, long initialTimeoutMillis) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.connect(new InetSocketAddress(address, port));
+        this.maxWindow = maxWindow;
+        this.rtt = new RttEstimator(initialTimeoutMillis);
+        this.congestion = new CongestionController(maxWindow);
+        this.sentAt = new long[maxWindow];
+        this.resent = new boolean[maxWindow];
+    }
+
+    public GoBackNSender(String address, int port) throws IOException {
+        this(address, port, 256, 1000);
+    }
+
+    public void send(String[] messages) throws IOException, InterruptedException {
+        byte[][] payloads = new byte[messages.length][];
+        for (int i = 0; i < messages.length; i++) {
+            payloads[i] = messages[i].getBytes();
+        }
+        send(payloads);
+    }
+
+    // Sends every payload in order and returns once all of them have been acknowledged.
+    // Sequence numbers carry on from the previous transfer, so late ACKs cannot be confused.
+    public synchronized void send(byte[][] payloads) throws IOException, InterruptedException {
+        frames = payloads;
+        firstSeq = nextSeq;
+        long endSeq = firstSeq + payloads.length;
+        retransmitted = 0;
+
+        if (ackReader == null) {
+            ackReader = new Thread(this::readAcks, "gbn-acks");
+            ackReader.setDaemon(true);
+            ackReader.start();
+        }
+
+        while (base < endSeq) {
+            // Fill the window, then sleep until an ACK or the timer changes something
+            while (nextSeq < endSeq && nextSeq - base < window()) {
+                int slot = slot(nextSeq);
+                sentAt[slot] = System.nanoTime();
+                resent[slot] = nextSeq < sentSeq;
+                if (resent[slot]) {
+                    retransmitted++;
+                }
+                transmit(nextSeq);
+                if (base == nextSeq) {
+                    restartTimer();
+                }
+                nextSeq++;
             }
+            sentSeq = Math.max(sentSeq, nextSeq);
+            wait();
+        }
+        cancelTimer();
+    }
+
+    private int window() {
+        return Math.min(congestion.window(), maxWindow);
+    }
 
-            // simulate ACK reception, and handle lost ACK
+    private int slot(long seq) {
+        return (int) (seq % maxWindow);
+    }
+
+    private void transmit(long seq) throws IOException {
+        int index = (int) (seq - firstSeq);
+        ArqCodec.encodeData(sendBuffer, seq, index == frames.length - 1, frames[index]);
+        try {
+            channel.write(sendBuffer);
+        } catch (PortUnreachableException e) {
+            // An earlier frame bounced; treat this one as lost and let the timer resend it
+        }
+    }
+
+    // Go back to 'base': every frame from there on counts as unsent again, and send() resends
+    // them only as fast as the (just reduced) congestion window allows
+    private void goBack() {
+        recoverSeq = sentSeq;
+        nextSeq = base;
+        notifyAll();
+    }
+
+    private void readAcks() {
+        ByteBuffer ackBuffer = ByteBuffer.allocateDirect(ArqCodec.MAX_FRAME);
+        while (channel.isOpen()) {
             try {
-                socket.setSoTimeout(2000); // Wait for 2 seconds
-                byte[] ackBuffer = new byte[256];
-                DatagramPacket ackPacket = new DatagramPacket(ackBuffer, ackBuffer.length);
-                socket.receive(ackPacket);
-                String ackMsg = new String(ackPacket.getData(), 0, ackPacket.getLength());
-                System.out.println("Received: " + ackMsg);
-                start = end; // Move window forward
-            } catch (SocketTimeoutException e) {
-                System.out.println("Timeout, resending from frame " + (start % windowSize));
-                sequence = start % windowSize; // Reset sequence to resend frames
+                ackBuffer.clear();
+                channel.read(ackBuffer);
+                ackBuffer.flip();
+                if (ArqCodec.type(ackBuffer) == ArqCodec.ACK) {
+                    onAck(ArqCodec.seq(ackBuffer));
+                }
+            } catch (PortUnreachableException e) {
+                // Receiver not up yet; the retransmission timer keeps trying
+            } catch (IOException e) {
+                break; // Channel closed
             }
         }
     }
 
-    public void close() {
-        socket.close();
+    // A cumulative ACK acknowledges every frame below 'nextExpected'
+    private synchronized void onAck(long nextExpected) {
+        if (nextExpected == base && base < nextSeq) {
+            // Three duplicate ACKs mean the frame at 'base' was lost: go back without waiting for the timer
+            if (++duplicateAcks == 3 && base >= recoverSeq) {
+                congestion.onLoss();
+                goBack();
+            }
+            return;
+        }
+        if (nextExpected < base || nextExpected > sentSeq) {
+            return; // Stale ACK
+        }
+        nextSeq = Math.max(nextSeq, nextExpected); // Frames sent before going back may still arrive
+
+        // Karn's rule: only frames sent exactly once give a usable RTT sample
+        int newest = slot(nextExpected - 1);
+        if (!resent[newest]) {
+            rtt.sample(System.nanoTime() - sentAt[newest]);
+        }
+        congestion.onAck((int) (nextExpected - base));
+        duplicateAcks = 0;
+        base = nextExpected;
+        if (base == nextSeq) {
+            cancelTimer();
+        } else {
+            restartTimer();
+        }
+        notifyAll();
+    }
+
+    private synchronized void onTimeout() {
+        if (base == nextSeq) {
+            return;
+        }
+        System.out.println("Timeout, going back to frame " + base + " of " + (sentSeq - 1)
+                + " (rto " + rtt.rtoMillis() + " ms, cwnd " + congestion.window() + ")");
+        rtt.backoff();
+        congestion.onTimeout();
+        goBack();
+        cancelTimer(); // send() restarts it as it resends 'base'
+    }
+
+    private void restartTimer() {
+        cancelTimer();
+        retransmission = timer.schedule(this::onTimeout, rtt.rtoNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelTimer() {
+        if (retransmission != null) {
+            retransmission.cancel(false);
+            retransmission = null;
+        }
+    }
+
+    public synchronized long retransmitted() {
+        return retransmitted;
+    }
+
+    public RttEstimator rtt() {
+        return rtt;
+    }
+
+    public CongestionController congestion() {
+        return congestion;
+    }
+
+    public void close() throws IOException {
+        timer.shutdownNow();
+        channel.close();
     }
 
     public static void main(String[] args) {
         try {
-            GoBackNSender sender = new GoBackNSender("localhost", 9876);
-            String[] messages = {"Hello", "this", "is", "a", "test", "of", "GBN"};
-            sender.send(messages);
+            String host = args.length > 0 ? args[0] : "localhost";
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 9876;
+            int bulkFrames = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+            int maxWindow = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+            GoBackNSender sender = new GoBackNSender(host, port, maxWindow, 1000);
+
+            // Live metrics, once a second
+            ScheduledFuture<?> metrics = sender.timer.scheduleAtFixedRate(() -> System.out.println(
+                    sender.congestion + ", " + sender.rtt), 1, 1, TimeUnit.SECONDS);
+
+            long start = System.nanoTime();
+            long bytes = 0;
+            int frameCount;
+            if (bulkFrames > 0) {
+                // Bulk mode: full-size frames, for measuring goodput
+                byte[][] payloads = new byte[bulkFrames][];
+                for (int i = 0; i < bulkFrames; i++) {
+                    payloads[i] = new byte[ArqCodec.MAX_PAYLOAD];
+                    bytes += ArqCodec.MAX_PAYLOAD;
+                }
+                sender.send(payloads);
+                frameCount = bulkFrames;
+            } else {
+                String[] messages = {"Hello", "this", "is", "a", "test", "of", "GBN"};
+                for (String message : messages) {
+                    bytes += message.length();
+                }
+                sender.send(messages);
+                frameCount = messages.length;
+            }
+            long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            metrics.cancel(false);
+            System.out.println("Sent " + frameCount + " frames in " + elapsed + " ms ("
+                    + sender.retransmitted() + " retransmissions, " + bytes * 1000 / elapsed / 1024 + " KiB/s goodput)");
+            System.out.println("Final " + sender.congestion + ", " + sender.rtt);
             sender.close();
         } catch (Exception e) {
             e.printStackTrace();
@@ -77,30 +350,54 @@ public class GoBackNSender {
 /*
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 
 public class GoBackNReceiver {
-    private DatagramSocket socket;
-    private byte[] buffer = new byte[1024];
+    private final DatagramChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(ArqCodec.MAX_FRAME);
+    private final ByteBuffer ackBuffer = ByteBuffer.allocateDirect(ArqCodec.ACK_SIZE);
+    // Next expected sequence number for each sender
+    private final Map<SocketAddress, Long> expected = new HashMap<>();
+    private final double lossRate; // Fraction of incoming data frames to discard, for experiments
+    private final Random random = new Random(42);
+    private final boolean verbose;
 
-    public GoBackNReceiver(int port) throws SocketException {
-        this.socket = new DatagramSocket(port);
+    public GoBackNReceiver(int port, double lossRate, boolean verbose) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.bind(new InetSocketAddress(port));
+        this.lossRate = lossRate;
+        this.verbose = verbose;
+    }
+
+    public GoBackNReceiver(int port) throws IOException {
+        this(port, 0, true);
     }
 
     public void receive() {
         while (true) {
             try {
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                socket.receive(packet);
-                String received = new String(packet.getData(), 0, packet.getLength());
-                System.out.println("Received: " + received);
-
-                // Sending ACK
-                String ack = "ACK for " + received;
-                byte[] ackData = ack.getBytes();
-                InetAddress address = packet.getAddress();
-                int port = packet.getPort();
-                DatagramPacket ackPacket = new DatagramPacket(ackData, ackData.length, address, port);
-                socket.send(ackPacket);
+                buffer.clear();
+                SocketAddress sender = channel.receive(buffer);
+                buffer.flip();
+                if (ArqCodec.type(buffer) != ArqCodec.DATA || random.nextDouble() < lossRate) {
+                    continue;
+                }
+
+                // In-order frames are delivered; anything else is discarded
+                long next = expected.getOrDefault(sender, 0L);
+                if (ArqCodec.seq(buffer) == next) {
+                    deliver(sender, next, ArqCodec.payload(buffer), ArqCodec.isFin(buffer));
+                    next++;
+                    expected.put(sender, next);
+                }
+
+                // Sending cumulative ACK
+                ArqCodec.encodeAck(ackBuffer, next);
+                channel.send(ackBuffer, sender);
             } catch (IOException e) {
                 System.out.println("Receiver error: " + e.getMessage());
                 break;
@@ -108,13 +405,25 @@ public class GoBackNReceiver {
         }
     }
 
-    public void close() {
-        socket.close();
+    private void deliver(SocketAddress sender, long seq, byte[] payload, boolean fin) {
+        if (verbose) {
+            System.out.println("Received: Frame " + seq + ": " + new String(payload));
+        }
+        if (fin) {
+            System.out.println("Transfer from " + sender + " complete (" + (seq + 1) + " frames)");
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
     }
 
     public static void main(String[] args) {
         try {
-            GoBackNReceiver receiver = new GoBackNReceiver(9876);
+            int port = args.length > 0 ? Integer.parseInt(args[0]) : 9876;
+            double lossRate = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+            boolean verbose = args.length < 3 || !"-q".equals(args[2]);
+            GoBackNReceiver receiver = new GoBackNReceiver(port, lossRate, verbose);
             receiver.receive();
             receiver.close();
         } catch (Exception e) {
@@ -127,23 +436,503 @@ public class GoBackNReceiver {
 ### 2. Selective Repeat Protocol Simulation
 Selective Repeat is similar to Go-Back-N, but only the erroneous or lost frames are resent, rather than all frames following a lost frame.
 
-Given the complexity of implementing a fully functional Selective Repeat protocol, especially handling individual ACKs and retransmissions, I will provide a brief outline rather than a complete implementation. You can follow the structure of the Go-Back-N sender and receiver, modifying it to track received ACKs individually and only resend packets for which an ACK was not received within a timeout period.
+The receiver buffers frames that arrive out of order and delivers them once the gap before them is filled. Every data frame is answered with a `SACK`: the cumulative next-expected number, the sequence number of the frame just received, and a 64-bit bitmap of the frames already buffered after the gap. The sender keeps a timer per outstanding frame and, when one fires, resends only that frame. Both modes use the same `ArqCodec` and accept the same arguments, so their goodput can be compared under the same loss rate.
+
+#### `SelectiveRepeatSender.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.*;
+
+public class SelectiveRepeatSender {
+    private final DatagramChannel channel;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(ArqCodec.MAX_FRAME);
+    private final int maxWindow;
+    private final RttEstimator rtt;
+    private final CongestionController congestion;
+
+    // Per-slot state for the frames in the window, indexed by seq % maxWindow
+    private final boolean[] acked;
+    private final ScheduledFuture<?>[] timers;
+    private final long[] sentAt;
+    private final boolean[] resent;
+
+    private Thread ackReader;
+    private byte[][] frames; // Payloads of the current transfer
+    private long firstSeq; // Sequence number of frames[0]
+    private long base; // Oldest unacknowledged sequence number
+    private long nextSeq; // Next sequence number to send for the first time
+    private long recoverSeq; // No new loss reaction until 'base' passes this point
+    private long retransmitted;
+
+    // 'maxWindow' caps the congestion window; 'initialTimeoutMillis' is the RTO before the first RTT sample
+    public SelectiveRepeatSender(String address, int port, int maxWindow, long initialTimeoutMillis) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.connect(new InetSocketAddress(address, port));
+        this.maxWindow = maxWindow;
+        this.rtt = new RttEstimator(initialTimeoutMillis);
+        this.congestion = new CongestionController(maxWindow);
+        this.acked = new boolean[maxWindow];
+        this.timers = new ScheduledFuture<?>[maxWindow];
+        this.sentAt = new long[maxWindow];
+        this.resent = new boolean[maxWindow];
+    }
+
+    public void send(String[] messages) throws IOException, InterruptedException {
+        byte[][] payloads = new byte[messages.length][];
+        for (int i = 0; i < messages.length; i++) {
+            payloads[i] = messages[i].getBytes();
+        }
+        send(payloads);
+    }
+
+    // Sends every payload and returns once all of them have been acknowledged
+    public synchronized void send(byte[][] payloads) throws IOException, InterruptedException {
+        frames = payloads;
+        firstSeq = nextSeq;
+        long endSeq = firstSeq + payloads.length;
+        retransmitted = 0;
+
+        if (ackReader == null) {
+            ackReader = new Thread(this::readAcks, "sr-acks");
+            ackReader.setDaemon(true);
+            ackReader.start();
+        }
+
+        while (base < endSeq) {
+            while (nextSeq < endSeq && nextSeq - base < window()) {
+                sentAt[slot(nextSeq)] = System.nanoTime();
+                resent[slot(nextSeq)] = false;
+                transmit(nextSeq);
+                startTimer(nextSeq);
+                nextSeq++;
+            }
+            wait();
+        }
+    }
+
+    private int window() {
+        return Math.min(congestion.window(), maxWindow);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % maxWindow);
+    }
+
+    private void transmit(long seq) throws IOException {
+        int index = (int) (seq - firstSeq);
+        ArqCodec.encodeData(sendBuffer, seq, index == frames.length - 1, frames[index]);
+        try {
+            channel.write(sendBuffer);
+        } catch (PortUnreachableException e) {
+            // Treated as a lost frame; its timer will resend it
+        }
+    }
+
+    private void readAcks() {
+        ByteBuffer ackBuffer = ByteBuffer.allocateDirect(ArqCodec.MAX_FRAME);
+        while (channel.isOpen()) {
+            try {
+                ackBuffer.clear();
+                channel.read(ackBuffer);
+                ackBuffer.flip();
+                if (ArqCodec.type(ackBuffer) == ArqCodec.SACK) {
+                    onSack(ArqCodec.seq(ackBuffer), ArqCodec.sackedSeq(ackBuffer), ArqCodec.sackBitmap(ackBuffer));
+                }
+            } catch (PortUnreachableException e) {
+                // Receiver not up yet
+            } catch (IOException e) {
+                break; // Channel closed
+            }
+        }
+    }
+
+    private synchronized void onSack(long nextExpected, long sackedSeq, long bitmap) {
+        if (nextExpected > nextSeq) {
+            return; // Not from this transfer
+        }
+        // Karn's rule: only frames sent exactly once give a usable RTT sample
+        if (sackedSeq >= base && sackedSeq < nextSeq && !acked[slot(sackedSeq)] && !resent[slot(sackedSeq)]) {
+            rtt.sample(System.nanoTime() - sentAt[slot(sackedSeq)]);
+        }
+
+        int newlyAcked = 0;
+        for (long seq = base; seq < nextExpected; seq++) {
+            newlyAcked += markAcked(seq);
+        }
+        newlyAcked += markAcked(sackedSeq);
+        for (int i = 0; bitmap != 0; i++, bitmap >>>= 1) {
+            if ((bitmap & 1) != 0) {
+                newlyAcked += markAcked(nextExpected + 1 + i);
+            }
+        }
+        congestion.onAck(newlyAcked);
+
+        // Slide the window past every acknowledged frame at its left edge
+        long oldBase = base;
+        while (base < nextSeq && acked[slot(base)]) {
+            acked[slot(base)] = false;
+            base++;
+        }
+        if (base != oldBase) {
+            notifyAll();
+        }
+    }
+
+    // Returns 1 if the frame was outstanding, 0 if it was already acknowledged or out of range
+    private int markAcked(long seq) {
+        if (seq < base || seq >= nextSeq) {
+            return 0;
+        }
+        int slot = slot(seq);
+        if (acked[slot]) {
+            return 0;
+        }
+        acked[slot] = true;
+        timers[slot].cancel(false);
+        timers[slot] = null;
+        return 1;
+    }
+
+    private void startTimer(long seq) {
+        timers[slot(seq)] = timer.schedule(() -> onTimeout(seq), rtt.rtoNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // Only the frame whose timer expired is sent again
+    private synchronized void onTimeout(long seq) {
+        if (seq < base || seq >= nextSeq || acked[slot(seq)]) {
+            return;
+        }
+        // Losses in the same window only shrink it once; the RTO also backs off when a frame
+        // times out again after being resent, so a silent receiver is probed less and less often
+        if (seq >= recoverSeq) {
+            rtt.backoff();
+            congestion.onTimeout();
+            recoverSeq = nextSeq;
+        } else if (resent[slot(seq)]) {
+            rtt.backoff();
+        }
+        resent[slot(seq)] = true;
+        try {
+            transmit(seq);
+            retransmitted++;
+        } catch (IOException e) {
+            System.out.println("Send error: " + e.getMessage());
+        }
+        startTimer(seq);
+    }
+
+    public synchronized long retransmitted() {
+        return retransmitted;
+    }
+
+    public RttEstimator rtt() {
+        return rtt;
+    }
+
+    public CongestionController congestion() {
+        return congestion;
+    }
+
+    public void close() throws IOException {
+        timer.shutdownNow();
+        channel.close();
+    }
+
+    public static void main(String[] args) {
+        try {
+            String host = args.length > 0 ? args[0] : "localhost";
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 9876;
+            int bulkFrames = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+            int maxWindow = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+            SelectiveRepeatSender sender = new SelectiveRepeatSender(host, port, maxWindow, 1000);
+
+            // Live metrics, once a second
+            ScheduledFuture<?> metrics = sender.timer.scheduleAtFixedRate(() -> System.out.println(
+                    sender.congestion + ", " + sender.rtt), 1, 1, TimeUnit.SECONDS);
+
+            long start = System.nanoTime();
+            long bytes = 0;
+            int frameCount;
+            if (bulkFrames > 0) {
+                // Bulk mode: full-size frames, for measuring goodput
+                byte[][] payloads = new byte[bulkFrames][];
+                for (int i = 0; i < bulkFrames; i++) {
+                    payloads[i] = new byte[ArqCodec.MAX_PAYLOAD];
+                    bytes += ArqCodec.MAX_PAYLOAD;
+                }
+                sender.send(payloads);
+                frameCount = bulkFrames;
+            } else {
+                String[] messages = {"Hello", "this", "is", "a", "test", "of", "SR"};
+                for (String message : messages) {
+                    bytes += message.length();
+                }
+                sender.send(messages);
+                frameCount = messages.length;
+            }
+            long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            metrics.cancel(false);
+            System.out.println("Sent " + frameCount + " frames in " + elapsed + " ms ("
+                    + sender.retransmitted() + " retransmissions, " + bytes * 1000 / elapsed / 1024 + " KiB/s goodput)");
+            System.out.println("Final " + sender.congestion + ", " + sender.rtt);
+            sender.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
+*/
+
+#### `SelectiveRepeatReceiver.java`
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class SelectiveRepeatReceiver {
+    private static final int WINDOW = 1024; // Frames buffered beyond the next expected one
+
+    private final DatagramChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(ArqCodec.MAX_FRAME);
+    private final ByteBuffer ackBuffer = ByteBuffer.allocateDirect(ArqCodec.SACK_SIZE);
+    private final Map<SocketAddress, Flow> flows = new HashMap<>();
+    private final double lossRate; // Fraction of incoming data frames to discard, for experiments
+    private final Random random = new Random(42);
+    private final boolean verbose;
+
+    // Reassembly state for one sender
+    static class Flow {
+        long next; // Next sequence number to deliver
+        final byte[][] buffered = new byte[WINDOW][]; // Out-of-order payloads, indexed by seq % WINDOW
+        long finSeq = -1;
+    }
+
+    public SelectiveRepeatReceiver(int port, double lossRate, boolean verbose) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.bind(new InetSocketAddress(port));
+        this.lossRate = lossRate;
+        this.verbose = verbose;
+    }
+
+    public void receive() {
+        while (true) {
+            try {
+                buffer.clear();
+                SocketAddress sender = channel.receive(buffer);
+                buffer.flip();
+                if (ArqCodec.type(buffer) != ArqCodec.DATA || random.nextDouble() < lossRate) {
+                    continue;
+                }
+
+                Flow flow = flows.computeIfAbsent(sender, s -> new Flow());
+                long seq = ArqCodec.seq(buffer);
+                if (seq >= flow.next && seq < flow.next + WINDOW) {
+                    int slot = (int) (seq % WINDOW);
+                    if (flow.buffered[slot] == null) {
+                        flow.buffered[slot] = ArqCodec.payload(buffer);
+                        if (ArqCodec.isFin(buffer)) {
+                            flow.finSeq = seq;
+                        }
+                    }
+                    // Deliver everything that is now contiguous
+                    while (flow.buffered[(int) (flow.next % WINDOW)] != null) {
+                        int head = (int) (flow.next % WINDOW);
+                        deliver(sender, flow, flow.buffered[head]);
+                        flow.buffered[head] = null;
+                        flow.next++;
+                    }
+                }
+
+                ArqCodec.encodeSack(ackBuffer, flow.next, seq, bitmap(flow));
+                channel.send(ackBuffer, sender);
+            } catch (IOException e) {
+                System.out.println("Receiver error: " + e.getMessage());
+                break;
+            }
+        }
+    }
+
+    // Bit i is set when frame next + 1 + i is already buffered
+    private static long bitmap(Flow flow) {
+        long bitmap = 0;
+        for (int i = 0; i < 64 && i + 1 < WINDOW; i++) {
+            if (flow.buffered[(int) ((flow.next + 1 + i) % WINDOW)] != null) {
+                bitmap |= 1L << i;
+            }
+        }
+        return bitmap;
+    }
+
+    private void deliver(SocketAddress sender, Flow flow, byte[] payload) {
+        if (verbose) {
+            System.out.println("Received: Frame " + flow.next + ": " + new String(payload));
+        }
+        if (flow.next == flow.finSeq) {
+            System.out.println("Transfer from " + sender + " complete (" + (flow.next + 1) + " frames)");
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) {
+        try {
+            int port = args.length > 0 ? Integer.parseInt(args[0]) : 9876;
+            double lossRate = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+            boolean verbose = args.length < 3 || !"-q".equals(args[2]);
+            SelectiveRepeatReceiver receiver = new SelectiveRepeatReceiver(port, lossRate, verbose);
+            receiver.receive();
+            receiver.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
+*/
+
+### 3. Adaptive Timeouts and Congestion Control
+A fixed window and a fixed timeout only suit one kind of link: on a LAN the sender sits idle waiting for a 2-second timer, and on a congested path a large fixed window makes the congestion worse. Both senders therefore measure the round-trip time and size their window from what the network tells them.
+
+#### `RttEstimator.java`
+
+Computes the retransmission timeout the way TCP does (Jacobson/Karels, RFC 6298): a smoothed RTT and RTT variance, `RTO = SRTT + 4 * RTTVAR`, doubling on every timeout. Senders only feed it samples from frames that were sent once (Karn's rule).
+
+/*
+import java.util.concurrent.TimeUnit;
+
+public class RttEstimator {
+    private static final long MIN_RTO = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long MAX_RTO = TimeUnit.SECONDS.toNanos(60);
+
+    private long srtt; // Smoothed RTT, in nanoseconds
+    private long rttvar; // RTT variance, in nanoseconds
+    private long rto;
+    private boolean sampled;
+
+    public RttEstimator(long initialRtoMillis) {
+        this.rto = TimeUnit.MILLISECONDS.toNanos(initialRtoMillis);
+    }
+
+    public synchronized void sample(long rttNanos) {
+        if (!sampled) {
+            srtt = rttNanos;
+            rttvar = rttNanos / 2;
+            sampled = true;
+        } else {
+            // RTTVAR <- 3/4 RTTVAR + 1/4 |SRTT - R|, then SRTT <- 7/8 SRTT + 1/8 R
+            rttvar += (Math.abs(srtt - rttNanos) - rttvar) / 4;
+            srtt += (rttNanos - srtt) / 8;
+        }
+        rto = Math.min(MAX_RTO, Math.max(MIN_RTO, srtt + 4 * rttvar));
+    }
+
+    // Exponential backoff after a timeout; the next sample resets it
+    public synchronized void backoff() {
+        rto = Math.min(MAX_RTO, rto * 2);
+    }
+
+    public synchronized long rtoNanos() {
+        return rto;
+    }
+
+    public synchronized long rtoMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(rto);
+    }
+
+    public synchronized double srttMillis() {
+        return srtt / 1e6;
+    }
+
+    public synchronized double rttvarMillis() {
+        return rttvar / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("srtt %.2f ms, rttvar %.2f ms, rto %d ms", srtt / 1e6, rttvar / 1e6, rtoMillis());
+    }
+}
+*/
+
+#### `CongestionController.java`
+
+A Reno-style AIMD window, counted in frames: slow start doubles the window each round trip until `ssthresh`, congestion avoidance then adds one frame per round trip, a loss signalled by duplicate ACKs halves it, and a timeout drops it back to one frame. It never grows past the sender's maximum window, so a loss after a long loss-free stretch really does halve the sending rate.
+
+/*
+public class CongestionController {
+    private final int maxWindow; // The sender's window can never be larger, so cwnd stops there
+    private double cwnd = 2; // Congestion window, in frames
+    private double ssthresh = Double.MAX_VALUE;
+
+    public CongestionController(int maxWindow) {
+        this.maxWindow = Math.max(2, maxWindow);
+    }
+
+    public synchronized void onAck(int framesAcked) {
+        for (int i = 0; i < framesAcked && cwnd < maxWindow; i++) {
+            if (cwnd < ssthresh) {
+                cwnd += 1; // Slow start
+            } else {
+                cwnd += 1 / cwnd; // Congestion avoidance
+            }
+        }
+        cwnd = Math.min(cwnd, maxWindow);
+    }
+
+    // Loss detected without a timeout: multiplicative decrease
+    public synchronized void onLoss() {
+        ssthresh = Math.max(cwnd / 2, 2);
+        cwnd = ssthresh;
+    }
+
+    public synchronized void onTimeout() {
+        ssthresh = Math.max(cwnd / 2, 2);
+        cwnd = 1;
+    }
+
+    public synchronized int window() {
+        return (int) cwnd;
+    }
+
+    public synchronized double ssthresh() {
+        return ssthresh;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("cwnd %.1f, ssthresh %s", cwnd,
+                ssthresh == Double.MAX_VALUE ? "inf" : String.format("%.1f", ssthresh));
+    }
+}
+*/
 
 ### Running the Simulation
 1. Compile the Java programs:
   
-   javac GoBackNSender.java
-   javac GoBackNReceiver.java
+   javac ArqCodec.java RttEstimator.java CongestionController.java GoBackNSender.java GoBackNReceiver.java SelectiveRepeatSender.java SelectiveRepeatReceiver.java
 
 
 2. Run the receiver in one terminal window:
 
-   java GoBackNReceiver
+   java GoBackNReceiver [port] [lossRate] [-q]
 
 
 3. Run the sender in another terminal window:
 
-   java GoBackNSender
+   java GoBackNSender [host] [port] [bulkFrames] [maxWindow]
+
 
+Use `SelectiveRepeatReceiver` and `SelectiveRepeatSender` the same way for Selective Repeat. To compare the two modes, give the receiver a loss rate and `-q`, and the sender a frame count and maximum window, for example `java SelectiveRepeatReceiver 9876 0.05 -q` and `java SelectiveRepeatSender localhost 9876 20000 256`; the sender prints its congestion window and RTT estimate every second, then retransmissions and goodput. The receiver drops frames with a fixed random seed, so runs are repeatable. For delay, jitter, reordering, duplication and bandwidth limits as well, put the `NetEmulator` from `netem.java` between sender and receiver.
 
 These simulations will give you an idea of how sliding window protocols work, but they simplify many aspects, such as error handling and network conditions. Adjustments would be needed for real-world applications or more detailed simulations.
\ No newline at end of file
@@ -1,7 +1,18 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class SubnetCalculator {
     
+    // A base network: the address as two 64-bit halves (IPv4 uses only the low 32 bits of 'low')
+    record Prefix(long high, long low, int length, int width) {
+        boolean ipv4() {
+            return width == 32;
+        }
+    }
+    
     // Converts an integer to a binary string of a given length
     private static String toBinaryString(int number, int length) {
         StringBuilder binary = new StringBuilder(Integer.toBinaryString(number));
@@ -32,27 +43,342 @@ public class SubnetCalculator {
         return bits;
     }
     
-    public static void main(String[] args) {
+    // Parses "address/length" for IPv4 or IPv6. Without a length, IPv4 falls back to
+    // its classful default (/8, /16 or /24) and IPv6 to /64. Host bits are cleared.
+    static Prefix parsePrefix(String text) {
+        int slash = text.indexOf('/');
+        int end = slash < 0 ? text.length() : slash;
+        long[] address = new long[2];
+        int kind = AddressParser.parse(text, 0, end, address);
+        if (kind != AddressParser.IPV4 && kind != AddressParser.IPV6) {
+            throw new IllegalArgumentException("not an IP prefix: " + text);
+        }
+        int width = kind == AddressParser.IPV4 ? 32 : 128;
+        int length;
+        if (slash >= 0) {
+            length = Integer.parseInt(text.substring(slash + 1));
+            if (length < 0 || length > width) {
+                throw new IllegalArgumentException("prefix length out of range: " + text);
+            }
+        } else if (width == 32) {
+            int firstOctet = (int) (address[0] >>> 24);
+            length = firstOctet < 128 ? 8 : firstOctet < 192 ? 16 : 24;
+        } else {
+            length = 64;
+        }
+        if (width == 32) {
+            long mask = length == 0 ? 0 : 0xFFFFFFFFL << (32 - length) & 0xFFFFFFFFL;
+            return new Prefix(0, address[0] & mask, length, width);
+        }
+        long highMask = length == 0 ? 0 : length >= 64 ? -1L : -1L << (64 - length);
+        long lowMask = length <= 64 ? 0 : -1L << (128 - length);
+        return new Prefix(address[0] & highMask, address[1] & lowMask, length, width);
+    }
+    
+    // Host bits a subnet needs: IPv4 reserves the network and broadcast addresses, IPv6 has neither
+    static int hostBits(long hosts, boolean ipv4) {
+        long addresses = ipv4 ? hosts + 1 : hosts - 1; // One less than the addresses needed
+        return addresses <= 0 ? (ipv4 ? 64 : 0) : 64 - Long.numberOfLeadingZeros(addresses);
+    }
+    
+    // True if the 128-bit value high:low is below 2^bits
+    private static boolean below(long high, long low, int bits) {
+        if (bits >= 128) {
+            return true;
+        }
+        if (bits >= 64) {
+            return Long.compareUnsigned(high, 1L << (bits - 64)) < 0;
+        }
+        return high == 0 && Long.compareUnsigned(low, 1L << bits) < 0;
+    }
+    
+    // VLSM plan: allocates the requirements largest first from the start of the base prefix.
+    // Every size is a power of two and they are handed out in descending order, so the
+    // next free address is always aligned for the next subnet and no search is needed.
+    // Returns the number of requirements that did not fit.
+    static int plan(Prefix base, long[] hosts, int count, Writer out) throws IOException {
+        boolean ipv4 = base.ipv4();
+        int spaceBits = base.width() - base.length();
+        
+        // Counting sort on host bits (0..64), largest first; ties keep their input order
+        int[] bucketStart = new int[66];
+        for (int i = 0; i < count; i++) {
+            bucketStart[64 - hostBits(hosts[i], ipv4) + 1]++;
+        }
+        for (int b = 1; b < bucketStart.length; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[bucketStart[64 - hostBits(hosts[i], ipv4)]++] = i;
+        }
+        
+        Table table = new Table(out, ipv4);
+        table.header();
+        long offsetHigh = 0;
+        long offsetLow = 0;
+        int unplaced = 0;
+        for (int index : order) {
+            int bits = hostBits(hosts[index], ipv4);
+            if (bits > spaceBits || bits > 63 || !below(offsetHigh, offsetLow, spaceBits)) {
+                table.unplaced(index, hosts[index]);
+                unplaced++;
+                continue;
+            }
+            long size = 1L << bits;
+            // Offsets stay below 2^spaceBits, so OR-ing them into the base is an addition
+            long networkHigh = base.high() | offsetHigh;
+            long networkLow = base.low() | offsetLow;
+            table.row(index, hosts[index], networkHigh, networkLow, base.width() - bits, size);
+            offsetLow += size;
+            if (Long.compareUnsigned(offsetLow, size) < 0) {
+                offsetHigh++;
+            }
+        }
+        table.flush();
+        return unplaced;
+    }
+    
+    // Streams the plan as fixed-width rows through one reused buffer
+    static class Table {
+        private final Writer out;
+        private final boolean ipv4;
+        private final int[] columns;
+        private final StringBuilder line = new StringBuilder(1 << 17);
+        private char[] chunk = new char[0];
+        private int lineStart;
+        
+        Table(Writer out, boolean ipv4) {
+            this.out = out;
+            this.ipv4 = ipv4;
+            this.columns = ipv4 ? new int[] {8, 20, 40, 57, 74, 91} : new int[] {8, 20, 65, 106, 147, 158};
+        }
+        
+        void header() throws IOException {
+            String[] titles = {"#", "Hosts", "Network", "First", "Last", "Broadcast", "Usable"};
+            for (int c = 0; c < titles.length; c++) {
+                line.append(titles[c]);
+                pad(c);
+            }
+            end();
+        }
+        
+        void row(int index, long hosts, long high, long low, int length, long size) throws IOException {
+            line.append(index + 1);
+            pad(0);
+            line.append(hosts);
+            pad(1);
+            if (ipv4) {
+                int network = (int) low;
+                int broadcast = network + (int) (size - 1);
+                AddressParser.appendIPv4(line, network).append('/').append(length);
+                pad(2);
+                AddressParser.appendIPv4(line, network + 1);
+                pad(3);
+                AddressParser.appendIPv4(line, broadcast - 1);
+                pad(4);
+                AddressParser.appendIPv4(line, broadcast);
+                pad(5);
+                line.append(size - 2);
+            } else {
+                AddressParser.appendIPv6(line, high, low).append('/').append(length);
+                pad(2);
+                AddressParser.appendIPv6(line, high, low);
+                pad(3);
+                // Aligned to its size, so the last address only sets the low bits
+                AddressParser.appendIPv6(line, high, low | (size - 1));
+                pad(4);
+                line.append('-');
+                pad(5);
+                line.append(size);
+            }
+            end();
+        }
+        
+        void unplaced(int index, long hosts) throws IOException {
+            line.append(index + 1);
+            pad(0);
+            line.append(hosts);
+            pad(1);
+            line.append("does not fit");
+            end();
+        }
+        
+        private void pad(int column) {
+            if (column >= columns.length) {
+                return;
+            }
+            do {
+                line.append(' ');
+            } while (line.length() - lineStart < columns[column]);
+        }
+        
+        private void end() throws IOException {
+            line.append('\n');
+            lineStart = line.length();
+            if (line.length() > (1 << 16)) {
+                flush();
+            }
+        }
+        
+        void flush() throws IOException {
+            if (chunk.length < line.length()) {
+                chunk = new char[line.capacity()];
+            }
+            int length = line.length();
+            line.getChars(0, length, chunk, 0);
+            out.write(chunk, 0, length);
+            line.setLength(0);
+            lineStart = 0;
+            out.flush();
+        }
+    }
+    
+    // Host counts separated by spaces, commas or newlines
+    static long[] readRequirements(Reader reader) throws IOException {
+        long[] hosts = new long[1024];
+        int count = 0;
+        long value = -1;
+        int c;
+        while (true) {
+            c = reader.read();
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                continue;
+            }
+            if (value >= 0) {
+                if (count == hosts.length) {
+                    hosts = Arrays.copyOf(hosts, count * 2);
+                }
+                hosts[count++] = value;
+                value = -1;
+            }
+            if (c < 0) {
+                break;
+            }
+            if (!Character.isWhitespace(c) && c != ',') {
+                throw new IllegalArgumentException("unexpected character '" + (char) c + "' in host counts");
+            }
+        }
+        return Arrays.copyOf(hosts, count);
+    }
+    
+    // java SubnetCalculator <prefix> <hosts> [hosts ...]   or   java SubnetCalculator <prefix> <file|->
+    static void planFromArgs(String[] args) throws IOException {
+        Prefix base = parsePrefix(args[0]);
+        long[] hosts;
+        if (args.length == 2 && !args[1].matches("\\d+")) {
+            try (Reader reader = args[1].equals("-")
+                    ? new InputStreamReader(System.in, StandardCharsets.US_ASCII)
+                    : Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.US_ASCII)) {
+                hosts = readRequirements(new BufferedReader(reader, 1 << 16));
+            }
+        } else {
+            hosts = new long[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                hosts[i - 1] = Long.parseLong(args[i]);
+            }
+        }
+        for (long h : hosts) {
+            if (h < 1) {
+                throw new IllegalArgumentException("host counts must be at least 1");
+            }
+        }
+        
+        Writer out = new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.US_ASCII);
+        long start = System.nanoTime();
+        int unplaced = plan(base, hosts, hosts.length, out);
+        long micros = (System.nanoTime() - start) / 1000;
+        StringBuilder prefix = base.ipv4()
+                ? AddressParser.appendIPv4(new StringBuilder(), (int) base.low())
+                : AddressParser.appendIPv6(new StringBuilder(), base.high(), base.low());
+        System.err.printf("Planned %d subnets in %s/%d (%d did not fit) in %.3f ms%n",
+                hosts.length - unplaced, prefix, base.length(), unplaced, micros / 1000.0);
+    }
+    
+    // java SubnetCalculator aggregate <file|-> [minus|and|or <file2>]
+    static void aggregate(String[] args) throws IOException {
+        if (args.length == 3 || args.length > 4) {
+            throw new IllegalArgumentException("usage: aggregate <file|-> [minus|and|or <file2>]");
+        }
+        long start = System.nanoTime();
+        PrefixAggregator.PrefixReader reader = new PrefixAggregator.PrefixReader();
+        long[] ranges = readPrefixes(reader, args[1]);
+        if (args.length >= 4) {
+            long[] other = readPrefixes(reader, args[3]);
+            ranges = switch (args[2]) {
+                case "minus" -> PrefixAggregator.difference(ranges, other);
+                case "and" -> PrefixAggregator.intersection(ranges, other);
+                case "or" -> PrefixAggregator.union(ranges, other);
+                default -> throw new IllegalArgumentException("unknown operation: " + args[2]);
+            };
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.US_ASCII);
+        long prefixes = PrefixAggregator.write(ranges, out);
+        System.err.printf("%d lines (%d skipped) -> %d prefixes covering %d addresses in %.1f ms%n",
+                reader.lines(), reader.skipped(), prefixes, PrefixAggregator.addresses(ranges),
+                (System.nanoTime() - start) / 1e6);
+    }
+    
+    private static long[] readPrefixes(PrefixAggregator.PrefixReader reader, String name) throws IOException {
+        try (InputStream in = name.equals("-") ? System.in : Files.newInputStream(Paths.get(name))) {
+            return reader.read(in);
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("aggregate")) {
+            try {
+                aggregate(args);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length >= 2) {
+            try {
+                planFromArgs(args);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+            return;
+        }
+        
         Scanner scanner = new Scanner(System.in);
         
-        System.out.println("Enter the base IP address (e.g., 192.168.1.0): ");
-        String ipAddress = scanner.nextLine();
+        System.out.println("Enter the base network (e.g., 192.168.1.0/24 or 2001:db8::/48): ");
+        String ipAddress = scanner.nextLine().trim();
+        Prefix base;
+        try {
+            base = parsePrefix(ipAddress);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            scanner.close();
+            return;
+        }
         
         System.out.println("Enter the number of required subnets: ");
         int numberOfSubnets = scanner.nextInt();
         
         int bitsForSubnets = bitsRequired(numberOfSubnets);
-        int baseBits = 0;
-        
-        // Assuming a default class C network for simplicity
-        // Modify baseBits for other classes as needed
-        baseBits = 24;
+        int baseBits = base.length();
         
         int totalBits = baseBits + bitsForSubnets;
+        if (totalBits > base.width()) {
+            System.out.println("Error: /" + baseBits + " cannot hold " + numberOfSubnets + " subnets");
+            scanner.close();
+            return;
+        }
         
         // Calculate and print subnet mask
-        String subnetMask = calculateSubnetMask(totalBits);
-        System.out.println("Subnet mask required: " + subnetMask);
+        if (base.ipv4()) {
+            String subnetMask = calculateSubnetMask(totalBits);
+            System.out.println("Subnet mask required: " + subnetMask);
+            System.out.println("First subnet: " + AddressParser.formatIPv4((int) base.low()) + "/" + totalBits);
+        } else {
+            System.out.println("Subnet prefix length required: /" + totalBits);
+            System.out.println("First subnet: " + AddressParser.formatIPv6(base.high(), base.low()) + "/" + totalBits);
+        }
         
         scanner.close();
     }
@@ -72,22 +398,58 @@ public class SubnetCalculator {
 
    - Compile the program by running the command:
 
-     javac SubnetCalculator.java
+     javac SubnetCalculator.java AddressParser.java
+
+     (`AddressParser.java` is the shared address parser from the IP address programs.)
 
 3. **Run the Compiled Java Program**:
    - After compilation, run the program using:
 
      java SubnetCalculator
 
-   - Follow the prompts to input the base IP address and the number of required subnets.
+   - Follow the prompts to input the base network and the number of required subnets.
+
+4. **Plan Variable-Length Subnets (VLSM)**:
+   - Pass the base prefix followed by the number of hosts each subnet needs:
+
+     java SubnetCalculator 192.168.1.0/24 50 20 100 2 2
+
+     java SubnetCalculator 2001:db8::/48 1 65536 300
+
+   - For large plans, put the host counts in a file (separated by spaces, commas or newlines) or pipe them in with `-`:
+
+     java SubnetCalculator 10.0.0.0/8 requirements.txt > plan.txt
+
+   - The table goes to standard output and a one-line summary with the planning time goes to standard error.
+
+5. **Aggregate Prefix Lists**:
+   - Merge a file of prefixes (one `a.b.c.d/len` per line, such as a BGP table dump) into the fewest prefixes covering the same addresses:
+
+     java SubnetCalculator aggregate bgp-table.txt > summary.txt
+
+   - Compare two lists: `minus` keeps what is in the first list but not the second, `and` keeps what is in both, and `or` merges the two:
+
+     java SubnetCalculator aggregate customers.txt minus bogons.txt
+
+   - This mode also needs `PrefixAggregator.java` from the prefix table programs: `javac SubnetCalculator.java AddressParser.java PrefixAggregator.java`.
 
 ### Program Explanation:
-- **Input**: The user enters a base IP address and the number of subnets they wish to create.
+- **Input**: The user enters a base network such as `192.168.1.0/24` or `2001:db8::/48` and the number of subnets they wish to create. Without a `/length`, IPv4 addresses use their classful default (/8, /16 or /24) and IPv6 addresses use /64.
 - **Processing**:
   - The program calculates how many bits are needed to create the required number of subnets.
-  - It combines these bits with the default base bits for a Class C network (which is 24 bits; modify this for different classes).
+  - It adds these bits to the base prefix length.
   - It then calculates the subnet mask corresponding to the total number of network bits.
-- **Output**: The program outputs the calculated subnet mask.
+- **Output**: The program outputs the calculated subnet mask (or prefix length for IPv6) and the first subnet.
+
+### VLSM Planning:
+- **Sizing**: An IPv4 subnet for `n` hosts needs `n + 2` addresses (network and broadcast), rounded up to a power of two; an IPv6 subnet needs `n` addresses, as IPv6 has no broadcast address.
+- **Allocation**: Requirements are sorted largest first with a counting sort on the number of host bits, which keeps equal sizes in input order. Because every size is a power of two and sizes only shrink, the next free address is always correctly aligned for the next subnet, so each allocation is a single addition with no searching. A requirement larger than the whole base prefix, or one that arrives after the space is used up, is reported as "does not fit".
+- **Arithmetic**: Addresses are kept as two 64-bit halves, so the same code plans IPv4 and IPv6. Network, first, last and broadcast addresses are computed with shifts and ORs.
+- **Output**: Rows are appended to one reused buffer that is written out in 64 KB chunks, so hundreds of thousands of subnets stream out without per-row string formatting.
+
+### Prefix Aggregation:
+- Each prefix becomes an address range packed into a single `long`. The ranges are sorted with `Arrays.sort` and merged in one sweep, and difference and intersection are linear sweeps over two merged lists. The whole job is O(n log n) and only ever stores primitive `long[]` arrays.
+- The input is parsed straight from bytes and merged whenever the buffer fills, so memory follows the size of the result rather than the number of lines. Lines that are not IPv4 prefixes, IPv6 included, are counted as skipped.
 
-This simple approach shows subnet mask calculation and can be expanded or refined to include more features like detailed subnetting information or support for different IP classes.
-*/
\ No newline at end of file
+The equal-size calculation in the interactive mode is kept for quick checks. The VLSM planner is for real address plans with subnets of different sizes.
+*/
@@ -12,85 +12,226 @@ I'll guide you through creating a simple chat program where two peers on the sam
 
 ### Java Code for Peer-to-Peer Chat
 
-We'll write a single Java class that includes both the client and server functionalities. Each peer will initiate a server thread to listen for incoming connections and messages, and use the main thread to send messages                                                                                                                                                                                                                                                                   
+We'll write a single Java class that includes both the client and server functionalities. Each peer will initiate a server thread to listen for incoming connections, give every connection its own reader thread, and use the main thread to send messages                                                                                                                                                                                                                                                                   
 
 #### Java Program: `PeerChat.java`
 
 /*
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.*;
 
 public class PeerChat {
-    private static final int PORT = 6789; // Port number for the chat
-    private static Socket socket = null;
-    private static ServerSocket serverSocket = null;
-    private static BufferedReader in = null; // Input stream for socket
-    private static PrintWriter out = null; // Output stream for socket
-    private static BufferedReader inputKeyboard = null; // Keyboard input
+    private static final int PORT = 6789; // Default port number for the chat
+    private static final int MAX_PEERS = 1000; // Default cap on simultaneous peers
 
-    public static void main(String[] args) throws IOException {
-        Scanner scanner = new Scanner(System.in);
-        inputKeyboard = new BufferedReader(new InputStreamReader(System.in));
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore peerSlots;
+    private final Set<Peer> peers = ConcurrentHashMap.newKeySet();
+    private final boolean framed; // Length-prefixed frames (FrameCodec) instead of lines
 
+    public PeerChat(int port, int maxPeers, boolean framed) throws IOException {
+        this.serverSocket = new ServerSocket(port);
+        this.peerSlots = new Semaphore(maxPeers);
+        this.framed = framed;
+    }
+
+    // Accepts incoming peers until the server socket is closed
+    private void acceptPeers() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (!peerSlots.tryAcquire()) {
+                    System.out.println("Peer limit reached, rejecting " + socket.getRemoteSocketAddress());
+                    socket.close();
+                    continue;
+                }
+                adopt(socket);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("Connection Error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Connects out to another peer, given as "host" or "host:port"
+    public void connect(String target) throws IOException {
+        String host = target;
+        int port = PORT;
+        int colon = target.lastIndexOf(':');
+        if (colon > 0) {
+            host = target.substring(0, colon);
+            port = Integer.parseInt(target.substring(colon + 1));
+        }
+        if (!peerSlots.tryAcquire()) {
+            throw new IOException("peer limit reached");
+        }
+        Socket socket;
         try {
-            serverSocket = new ServerSocket(PORT);
-            System.out.println("Chat Server started on port " + PORT);
-            System.out.println("Waiting for another peer to connect...");
-            
-            Thread serverThread = new Thread(() -> {
-                try {
-                    socket = serverSocket.accept();
-                    System.out.println("A peer has connected!");
-                    
-                    in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                    out = new PrintWriter(socket.getOutputStream(), true);
-                    
+            socket = new Socket(host, port);
+        } catch (IOException e) {
+            peerSlots.release();
+            throw e;
+        }
+        adopt(socket);
+    }
+
+    // Starts a peer on a socket that already holds a slot, giving back the slot and closing the socket if that fails
+    private void adopt(Socket socket) throws IOException {
+        try {
+            start(new Peer(socket));
+        } catch (IOException e) {
+            peerSlots.release();
+            try {
+                socket.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+    }
+
+    private void tryConnect(String target) {
+        try {
+            connect(target);
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Could not connect to " + target + ": " + e.getMessage());
+        }
+    }
+
+    private void start(Peer peer) {
+        peers.add(peer);
+        System.out.println("Peer " + peer.name + " has connected!");
+        executor.execute(peer);
+    }
+
+    public void broadcast(String message) {
+        for (Peer peer : peers) {
+            peer.send(message);
+        }
+    }
+
+    // Closes the listener and every peer, then waits for the reader threads to exit
+    public void shutdown() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        for (Peer peer : peers) {
+            peer.close();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // One connected peer: its socket, streams and reader loop
+    class Peer implements Runnable {
+        private final Socket socket;
+        private final String name;
+        private final OutputStream out;
+
+        Peer(Socket socket) throws IOException {
+            this.socket = socket;
+            this.name = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (framed) {
+                    FrameCodec.Reader in = new FrameCodec.Reader(socket.getInputStream());
+                    ByteBuffer frame;
+                    while ((frame = in.read()) != null) {
+                        System.out.println("Peer " + name + " says: " + StandardCharsets.UTF_8.decode(frame));
+                    }
+                } else {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
                     String receivedMessage;
                     while ((receivedMessage = in.readLine()) != null) {
-                        System.out.println("Peer says: " + receivedMessage);
+                        System.out.println("Peer " + name + " says: " + receivedMessage);
                     }
-                } catch (IOException e) {
-                    System.out.println("Connection Error: " + e.getMessage());
-                } finally {
-                    try {
-                        if (socket != null) socket.close();
-                        if (in != null) in.close();
-                        if (out != null) out.close();
-                        if (serverSocket != null) serverSocket.close();
-                    } catch (IOException e) {
-                        System.out.println("Failed to close resources: " + e.getMessage());
+                }
+            } catch (IOException e) {
+                // Peer closed the connection or we are shutting down
+            } finally {
+                close();
+                if (peers.remove(this)) {
+                    peerSlots.release();
+                    System.out.println("Peer " + name + " disconnected");
+                }
+            }
+        }
+
+        void send(String message) {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            synchronized (out) {
+                try {
+                    if (framed) {
+                        FrameCodec.writeFrame(out, bytes);
+                    } else {
+                        out.write(bytes);
+                        out.write('\n');
                     }
+                    out.flush();
+                } catch (IOException e) {
+                    close(); // The reader thread notices and removes the peer
                 }
-            });
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT;
+        int maxPeers = args.length > 1 ? Integer.parseInt(args[1]) : MAX_PEERS;
+        boolean framed = args.length > 2 && "framed".equals(args[2]);
+        Scanner scanner = new Scanner(System.in);
 
-            serverThread.start();
+        PeerChat chat = new PeerChat(port, maxPeers, framed);
+        System.out.println("Chat Server started on port " + port);
+        System.out.println("Waiting for other peers to connect...");
+        chat.executor.execute(chat::acceptPeers);
 
+        try {
             // Connecting to the peer server
-            System.out.println("Enter the IP address of a peer to connect:");
+            System.out.println("Enter the address of a peer to connect (host or host:port, empty to skip):");
             String host = scanner.nextLine();
             if (!host.isEmpty()) {
-                socket = new Socket(host, PORT);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                out = new PrintWriter(socket.getOutputStream(), true);
+                chat.tryConnect(host);
             }
 
-            // Sending messages
-            System.out.println("Connected. Type your messages (type 'exit' to end):");
-            String messageToSend;
-            while ((messageToSend = inputKeyboard.readLine()) != null) {
+            // Sending messages; '/connect host[:port]' adds another peer
+            System.out.println("Type your messages (type 'exit' to end):");
+            while (scanner.hasNextLine()) {
+                String messageToSend = scanner.nextLine();
                 if ("exit".equalsIgnoreCase(messageToSend)) {
                     break;
                 }
-                out.println(messageToSend);
+                if (messageToSend.startsWith("/connect ")) {
+                    chat.tryConnect(messageToSend.substring(9).trim());
+                    continue;
+                }
+                chat.broadcast(messageToSend);
             }
-        } catch (IOException e) {
-            System.out.println("I/O error: " + e.getMessage());
         } finally {
-            if (socket != null) socket.close();
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (serverSocket != null) serverSocket.close();
+            chat.shutdown();
         }
     }
 }
@@ -106,12 +247,13 @@ public class PeerChat {
 
 2. **Run the Program on Two Terminals**:
    - Open two terminal windows (Terminal A and Terminal B).
-   - Run the program in both terminals:
+   - Run the program in both terminals, giving the second one its own port since both listen on the same machine:
      ```sh
-     java PeerChat
+     java PeerChat            # Terminal A, listens on 6789
+     java PeerChat 6790       # Terminal B, listens on 6790
      ```
-   - In one of the terminals (say Terminal A), wait for the peer to connect.
-   - In the other terminal (Terminal B), when prompted, enter `localhost` to connect back to the first terminal.
-   - Now you can start chatting from both terminals.
+   - In one of the terminals (say Terminal A), press Enter at the prompt and wait for the peer to connect.
+   - In the other terminal (Terminal B), when prompted, enter `localhost:6789` to connect to the first terminal.
+   - Now you can start chatting from both terminals. More peers can join the same way, or be dialled with `/connect host:port`.
 
-Each terminal represents a peer, and messages typed in one terminal should appear in the other. This setup demonstrates the basics of a peer-to-peer chat application using Java TCP sockets, where each instance can send and receive messages simultaneously.
\ No newline at end of file
+Each terminal represents a peer, and messages typed in one terminal are sent to every connected peer. Every connection runs on its own virtual thread (Java 21) with its own `Peer` object, so a node can hold thousands of peers; the optional second argument caps how many (`java PeerChat 6789 5000`), a third argument `framed` switches to length-prefixed frames (compile `FrameCodec.java` from `tcpudppackets.java` alongside), and typing `exit` closes every connection before the program ends. This setup demonstrates the basics of a peer-to-peer chat application using Java TCP sockets, where each instance can send and receive messages simultaneously.
\ No newline at end of file
@@ -13,10 +13,13 @@ TCP (Transmission Control Protocol) is a connection-oriented protocol that ensur
 /*
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class TCPServer {
     public static void main(String[] args) throws IOException {
         int port = 6789;
+        boolean framed = args.length > 0 && "framed".equals(args[0]);
         ServerSocket serverSocket = new ServerSocket(port);
         System.out.println("Server started and listening on port " + port);
 
@@ -24,6 +27,19 @@ public class TCPServer {
             Socket connectionSocket = serverSocket.accept();
             System.out.println("Client connected from " + connectionSocket.getInetAddress());
 
+            if (framed) {
+                // Length-prefixed frames instead of lines (see FrameCodec below)
+                try (connectionSocket) {
+                    ByteBuffer frame = new FrameCodec.Reader(connectionSocket.getInputStream()).read();
+                    if (frame != null) {
+                        String clientSentence = StandardCharsets.UTF_8.decode(frame).toString();
+                        System.out.println("Received: " + clientSentence);
+                        FrameCodec.writeFrame(connectionSocket.getOutputStream(), clientSentence.toUpperCase().getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                continue;
+            }
+
             BufferedReader inFromClient = new BufferedReader(new InputStreamReader(connectionSocket.getInputStream()));
             DataOutputStream outToClient = new DataOutputStream(connectionSocket.getOutputStream());
 
@@ -42,11 +58,14 @@ public class TCPServer {
 /*
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class TCPClient {
     public static void main(String[] args) throws IOException {
         String serverIP = "localhost";
         int port = 6789;
+        boolean framed = args.length > 0 && "framed".equals(args[0]);
         Socket clientSocket = new Socket(serverIP, port);
 
         DataOutputStream outToServer = new DataOutputStream(clientSocket.getOutputStream());
@@ -56,8 +75,15 @@ public class TCPClient {
         System.out.print("Enter a sentence: ");
         String sentence = inFromUser.readLine();
 
-        outToServer.writeBytes(sentence + '\n');
-        String modifiedSentence = inFromServer.readLine();
+        String modifiedSentence;
+        if (framed) {
+            FrameCodec.writeFrame(outToServer, sentence.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer frame = new FrameCodec.Reader(clientSocket.getInputStream()).read();
+            modifiedSentence = frame == null ? null : StandardCharsets.UTF_8.decode(frame).toString();
+        } else {
+            outToServer.writeBytes(sentence + '\n');
+            modifiedSentence = inFromServer.readLine();
+        }
         System.out.println("FROM SERVER: " + modifiedSentence);
 
         clientSocket.close();
@@ -65,6 +91,856 @@ public class TCPClient {
 }
 */
 
+#### Example NIO TCP Server (Java)
+
+The server above handles one client at a time: `accept()`, `readLine()` and `writeBytes()` all block, so a single slow client stalls everyone else, and the accepted sockets are never closed. The version below keeps the same uppercase-echo behaviour (so `TCPClient` works against it unchanged) but is built on a `ServerSocketChannel` and a small number of `Selector` threads. Each connection owns a pair of direct `ByteBuffer`s, complete lines are uppercased in place and echoed back, and closed connections are released immediately.
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class NioTCPServer {
+    private static final int BUFFER_SIZE = 4096; // Per-connection read and write buffer size
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 6789;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        boolean framed = args.length > 2 && "framed".equals(args[2]);
+
+        Reactor[] reactors = new Reactor[workers];
+        for (int i = 0; i < workers; i++) {
+            reactors[i] = new Reactor(framed);
+            Thread thread = new Thread(reactors[i], "reactor-" + i);
+            thread.start();
+        }
+
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        System.out.println("NIO server started and listening on port " + port + " with " + workers + " reactor(s)");
+
+        // The main thread only accepts; connections are spread round-robin over the reactors
+        int next = 0;
+        while (true) {
+            SocketChannel channel = serverChannel.accept();
+            reactors[next].register(channel);
+            next = (next + 1) % workers;
+        }
+    }
+
+    // One selector thread serving many connections
+    static class Reactor implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final boolean framed;
+
+        Reactor(boolean framed) throws IOException {
+            this.selector = Selector.open();
+            this.framed = framed;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    selector.select();
+                    registerPending();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.write();
+                            }
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Reactor error: " + e.getMessage());
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(channel, key, framed));
+                } catch (IOException e) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    // Per-connection state: bytes read but not yet framed, and bytes waiting to be written
+    static class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final boolean framed;
+        private boolean inputClosed;
+        private int payloadLeft; // Framed mode: payload bytes of the current frame not yet echoed
+
+        Connection(SocketChannel channel, SelectionKey key, boolean framed) {
+            this.channel = channel;
+            this.key = key;
+            this.framed = framed;
+        }
+
+        void read() throws IOException {
+            int n = channel.read(in);
+            if (n < 0) {
+                inputClosed = true;
+            }
+            frame();
+            write();
+        }
+
+        void write() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+
+            // More lines may fit now that the output buffer has drained
+            frame();
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            }
+
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (inputClosed) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void frame() throws IOException {
+            if (framed) {
+                echoFrames();
+            } else {
+                frameLines();
+            }
+        }
+
+        // Streams length-prefixed frames from 'in' to 'out', so frames of any size fit through the fixed buffers
+        private void echoFrames() throws IOException {
+            in.flip();
+            while (in.hasRemaining()) {
+                if (payloadLeft == 0) {
+                    if (out.remaining() < FrameCodec.MAX_HEADER) {
+                        break;
+                    }
+                    int length = FrameCodec.getHeader(in);
+                    if (length < 0) {
+                        break;
+                    }
+                    FrameCodec.putHeader(out, length);
+                    payloadLeft = length;
+                    continue;
+                }
+                int start = in.position();
+                int end = start + Math.min(payloadLeft, Math.min(in.remaining(), out.remaining()));
+                if (end == start) {
+                    break;
+                }
+                for (int i = start; i < end; i++) {
+                    byte b = in.get(i);
+                    if (b >= 'a' && b <= 'z') {
+                        in.put(i, (byte) (b - 32));
+                    }
+                }
+                copy(start, end);
+                in.position(end);
+                payloadLeft -= end - start;
+            }
+            in.compact();
+        }
+
+        // Moves every complete line from 'in' to 'out', uppercasing ASCII letters in place
+        private void frameLines() {
+            in.flip();
+            int start = in.position();
+            int limit = in.limit();
+            for (int i = start; i < limit; i++) {
+                byte b = in.get(i);
+                if (b >= 'a' && b <= 'z') {
+                    in.put(i, (byte) (b - 32));
+                } else if (b == '\n') {
+                    // Same output as readLine() + '\n': a trailing '\r' is dropped
+                    int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                    if (out.remaining() < end - start + 1) {
+                        break;
+                    }
+                    copy(start, end);
+                    out.put((byte) '\n');
+                    start = i + 1;
+                }
+            }
+
+            // A line longer than the buffer is passed through in pieces
+            if (start == 0 && limit == in.capacity() && out.remaining() >= limit) {
+                copy(0, limit);
+                start = limit;
+            }
+
+            // Like readLine(), an unterminated last line is still answered at end of stream
+            if (inputClosed && start < limit && out.remaining() > limit - start) {
+                copy(start, limit);
+                out.put((byte) '\n');
+                start = limit;
+            }
+            in.position(start);
+            in.compact();
+        }
+
+        private void copy(int from, int to) {
+            ByteBuffer line = in.duplicate();
+            line.limit(to).position(from);
+            out.put(line);
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
+*/
+
+#### Example Virtual-Thread TCP Server (Java)
+
+Another way around the one-client-at-a-time loop is to keep the simple blocking code but give every accepted connection its own thread. Virtual threads (Java 21) make that cheap enough for thousands of clients. The server below caps the number of open connections, keeps each client's state in its own `ClientHandler`, and on Ctrl+C stops accepting, lets in-flight clients finish for a few seconds, and then closes whatever is left.
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.*;
+
+public class VirtualThreadTCPServer {
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore connectionSlots;
+    private final Set<ClientHandler> clients = ConcurrentHashMap.newKeySet();
+    private final boolean framed;
+    private volatile boolean running = true;
+
+    public VirtualThreadTCPServer(int port, int maxConnections, boolean framed) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024);
+        this.connectionSlots = new Semaphore(maxConnections);
+        this.framed = framed;
+    }
+
+    public void serve() {
+        while (running) {
+            try {
+                // Wait for a free slot before accepting, so excess clients queue in the backlog
+                connectionSlots.acquire();
+                Socket socket = serverSocket.accept();
+                ClientHandler client = new ClientHandler(socket);
+                clients.add(client);
+                executor.execute(client);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                connectionSlots.release();
+                if (running) {
+                    System.out.println("Accept error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Stops accepting, waits up to 'graceMillis' for clients to finish, then closes the rest
+    public void shutdown(long graceMillis) {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(graceMillis, TimeUnit.MILLISECONDS)) {
+                for (ClientHandler client : clients) {
+                    client.close();
+                }
+                executor.awaitTermination(graceMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Server stopped");
+    }
+
+    // State for one connected client; runs on its own virtual thread
+    class ClientHandler implements Runnable {
+        private final Socket socket;
+
+        ClientHandler(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            if (framed) {
+                runFramed();
+                return;
+            }
+            try (BufferedReader inFromClient = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                 DataOutputStream outToClient = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+                String clientSentence;
+                while ((clientSentence = inFromClient.readLine()) != null) {
+                    outToClient.writeBytes(clientSentence.toUpperCase() + '\n');
+                    // Only flush once every pipelined line already received has been answered
+                    if (!inFromClient.ready()) {
+                        outToClient.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away or the server is shutting down
+            } finally {
+                close();
+                clients.remove(this);
+                connectionSlots.release();
+            }
+        }
+
+        // Same loop with length-prefixed frames; ASCII letters are uppercased in place
+        private void runFramed() {
+            try {
+                FrameCodec.Reader inFromClient = new FrameCodec.Reader(socket.getInputStream());
+                OutputStream outToClient = new BufferedOutputStream(socket.getOutputStream());
+                ByteBuffer frame;
+                while ((frame = inFromClient.read()) != null) {
+                    byte[] data = frame.array();
+                    int start = frame.arrayOffset() + frame.position();
+                    int end = start + frame.remaining();
+                    for (int i = start; i < end; i++) {
+                        if (data[i] >= 'a' && data[i] <= 'z') {
+                            data[i] -= 32;
+                        }
+                    }
+                    FrameCodec.writeFrame(outToClient, data, start, end - start);
+                    if (!inFromClient.ready()) {
+                        outToClient.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away, sent a bad frame, or the server is shutting down
+            } finally {
+                close();
+                clients.remove(this);
+                connectionSlots.release();
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 6789;
+        int maxConnections = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        boolean framed = args.length > 2 && "framed".equals(args[2]);
+
+        VirtualThreadTCPServer server = new VirtualThreadTCPServer(port, maxConnections, framed);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.shutdown(5000)));
+        System.out.println("Server started and listening on port " + port + " (max " + maxConnections + " connections)");
+        server.serve();
+    }
+}
+*/
+
+#### Length-Prefixed Framing (Java)
+
+All of the TCP programs above find message boundaries with `readLine()` and `'\n'`. That means decoding every byte as a character, it cannot carry binary data, and a message that contains a newline is split in two. `FrameCodec` instead puts the payload length in front of every message as a varint (7 bits per byte, so messages under 128 bytes cost one extra byte) and works directly on `ByteBuffer`s:
+
+- `Decoder` pulls complete frames out of a buffer that is filled by partial reads, remembering a half-received frame between calls.
+- `encode` appends a whole frame to an output buffer, or writes nothing if it does not fit.
+- `Writer` collects many frames and sends headers and payloads with one gathering write, without copying the payloads; `PipelinedTCPClient` uses it in `framed` mode.
+- `Reader` and `writeFrame` do the same for programs that use plain socket streams.
+
+Every TCP program here (`TCPServer`, `TCPClient`, `NioTCPServer`, `VirtualThreadTCPServer` and `PeerChat`) accepts a `framed` argument that switches it from lines to frames; both ends must use the same mode.
+
+/*
+import java.io.*;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+public final class FrameCodec {
+    public static final int MAX_HEADER = 5; // A varint of up to 35 bits
+    public static final int MAX_FRAME = 16 << 20; // Larger length prefixes are treated as corrupt
+
+    private FrameCodec() {}
+
+    public static int headerSize(int length) {
+        return length < (1 << 7) ? 1 : length < (1 << 14) ? 2 : length < (1 << 21) ? 3 : length < (1 << 28) ? 4 : 5;
+    }
+
+    // Writes 'length' as a little-endian base-128 varint
+    public static void putHeader(ByteBuffer out, int length) {
+        while ((length & ~0x7F) != 0) {
+            out.put((byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        out.put((byte) length);
+    }
+
+    // Reads a length prefix at the buffer's position, or returns -1 and leaves the position alone if it is incomplete
+    public static int getHeader(ByteBuffer in) throws ProtocolException {
+        int length = 0;
+        int position = in.position();
+        for (int shift = 0; shift < 7 * MAX_HEADER; shift += 7) {
+            if (position >= in.limit()) {
+                return -1;
+            }
+            byte b = in.get(position++);
+            if (shift == 7 * (MAX_HEADER - 1) && (b & 0xFF) > 0x0F) { // Only 4 bits of an int are left
+                throw new ProtocolException("malformed length prefix");
+            }
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (length < 0 || length > MAX_FRAME) {
+                    throw new ProtocolException("frame too large: " + Integer.toUnsignedString(length));
+                }
+                in.position(position);
+                return length;
+            }
+        }
+        throw new ProtocolException("malformed length prefix");
+    }
+
+    // Appends one frame to 'out'; returns false, writing nothing, if it does not fit
+    public static boolean encode(ByteBuffer out, ByteBuffer payload) {
+        int length = payload.remaining();
+        if (out.remaining() < headerSize(length) + length) {
+            return false;
+        }
+        putHeader(out, length);
+        out.put(payload);
+        return true;
+    }
+
+    // Incremental decoder over a buffer that is refilled by (possibly partial) reads
+    public static class Decoder {
+        private int length = -1; // Payload length of a frame whose header has been consumed
+
+        // Returns the next payload as a slice of 'in' (valid until 'in' is compacted), or null if more bytes are needed
+        public ByteBuffer next(ByteBuffer in) throws ProtocolException {
+            if (length < 0 && (length = getHeader(in)) < 0) {
+                return null;
+            }
+            if (in.remaining() < length) {
+                return null;
+            }
+            ByteBuffer payload = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            length = -1;
+            return payload;
+        }
+
+        // Payload length of the frame being received, or -1 between frames; callers grow their buffer to fit it
+        public int pending() {
+            return length;
+        }
+    }
+
+    // Batches frames and sends them with one gathering write
+    public static class Writer {
+        private final ByteBuffer headers;
+        private final ByteBuffer[] vector;
+        private int used; // Entries of 'vector' in use
+        private int first; // First entry not yet fully written
+
+        public Writer(int maxFrames) {
+            this.headers = ByteBuffer.allocateDirect(maxFrames * MAX_HEADER);
+            this.vector = new ByteBuffer[maxFrames * 2];
+        }
+
+        // Queues a frame; the payload must stay untouched until flush() has written it. Returns false when full.
+        public boolean add(ByteBuffer payload) {
+            if (used == vector.length) {
+                return false;
+            }
+            int start = headers.position();
+            putHeader(headers, payload.remaining());
+            vector[used++] = headers.slice(start, headers.position() - start);
+            vector[used++] = payload;
+            return true;
+        }
+
+        public boolean isEmpty() {
+            return used == 0;
+        }
+
+        // Writes as much as the channel takes; returns true once every queued frame is out
+        public boolean flush(GatheringByteChannel channel) throws IOException {
+            while (first < used) {
+                if (channel.write(vector, first, used - first) == 0) {
+                    return false;
+                }
+                while (first < used && !vector[first].hasRemaining()) {
+                    vector[first++] = null;
+                }
+            }
+            used = 0;
+            first = 0;
+            headers.clear();
+            return true;
+        }
+    }
+
+    // Frame reader for blocking socket streams
+    public static class Reader {
+        private final InputStream in;
+        private final Decoder decoder = new Decoder();
+        private ByteBuffer buffer = ByteBuffer.allocate(8192).flip();
+
+        public Reader(InputStream in) {
+            this.in = in;
+        }
+
+        // Returns the next payload (valid until the next call), or null at end of stream
+        public ByteBuffer read() throws IOException {
+            while (true) {
+                ByteBuffer payload = decoder.next(buffer);
+                if (payload != null) {
+                    return payload;
+                }
+                buffer.compact();
+                if (decoder.pending() > buffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(decoder.pending(), buffer.capacity() * 2));
+                    buffer = larger.put(buffer.flip());
+                }
+                int n = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (n < 0) {
+                    buffer.flip();
+                    if (buffer.hasRemaining() || decoder.pending() >= 0) {
+                        throw new EOFException("stream ended inside a frame");
+                    }
+                    return null;
+                }
+                buffer.position(buffer.position() + n).flip();
+            }
+        }
+
+        // True if another read() may return without blocking, like BufferedReader.ready()
+        public boolean ready() throws IOException {
+            return buffer.hasRemaining() || in.available() > 0;
+        }
+    }
+
+    // Writes one frame to a stream; wrap the stream in a BufferedOutputStream to send header and payload together
+    public static void writeFrame(OutputStream out, byte[] payload, int offset, int length) throws IOException {
+        byte[] header = new byte[MAX_HEADER];
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        putHeader(headerBuffer, length);
+        out.write(header, 0, headerBuffer.position());
+        out.write(payload, offset, length);
+    }
+
+    public static void writeFrame(OutputStream out, byte[] payload) throws IOException {
+        writeFrame(out, payload, 0, payload.length);
+    }
+}
+*/
+
+#### Example Pipelined TCP Client (Java)
+
+`TCPClient` opens a connection, sends one sentence, waits for the answer and closes, so at high request rates almost all of the time goes into connection setup and round trips. `PipelinedTCPClient` keeps one connection open and lets many requests be outstanding on it at once: `send()` returns a `CompletableFuture` immediately, a writer thread sends every request queued since its last write with a single system call, packing lines into one buffer or, in `framed` mode, handing the frame headers and the untouched payloads to one gathering `write()` through `FrameCodec.Writer` (TCP_NODELAY is on, so batching happens here rather than in Nagle's algorithm), and a reader thread completes the futures in order as responses arrive. `PipelinedTCPClient.Pool` spreads requests over several connections. Both line and `framed` modes are supported; the server must keep connections open for more than one request, as `NioTCPServer` and `VirtualThreadTCPServer` do.
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PipelinedTCPClient implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_GATHER = 512; // Frames per gathering write: 1024 buffers, Linux's IOV_MAX
+
+    private final SocketChannel channel;
+    private final boolean framed;
+    private final Semaphore inFlightSlots;
+    private final BlockingQueue<Request> outgoing = new LinkedBlockingQueue<>();
+    private final Queue<Request> awaitingResponse = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // Line mode
+    private final FrameCodec.Writer frames = new FrameCodec.Writer(MAX_GATHER); // Framed mode
+    private final Thread writer;
+    private final Thread reader;
+    private volatile IOException failure;
+
+    private record Request(byte[] payload, CompletableFuture<String> response) {}
+
+    public PipelinedTCPClient(String host, int port, boolean framed, int maxInFlight) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.framed = framed;
+        this.inFlightSlots = new Semaphore(maxInFlight);
+        this.writer = Thread.ofVirtual().name("pipeline-writer").start(this::writeLoop);
+        this.reader = Thread.ofVirtual().name("pipeline-reader").start(this::readLoop);
+    }
+
+    // Queues a request; blocks only when 'maxInFlight' requests are already outstanding
+    public CompletableFuture<String> send(String request) throws InterruptedException {
+        byte[] payload = request.getBytes(StandardCharsets.UTF_8);
+        if (!framed && request.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("line mode cannot send a newline; use framed mode");
+        }
+        CompletableFuture<String> response = new CompletableFuture<>();
+        if (failure != null) {
+            response.completeExceptionally(failure);
+            return response;
+        }
+        inFlightSlots.acquire();
+        outgoing.add(new Request(payload, response));
+        if (failure != null) {
+            fail(failure); // The connection died while we waited; nobody else will drain the queue
+        }
+        return response;
+    }
+
+    // Drains everything queued since the last write into one syscall: lines are packed into one
+    // buffer, frames go out with one gathering write straight from the request payloads
+    private void writeLoop() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(outgoing.take());
+                outgoing.drainTo(batch);
+                // Register the whole batch before writing any of it: the reader then always finds the
+                // request a response belongs to, and fail() reaches every request if a write throws
+                awaitingResponse.addAll(batch);
+                if (framed) {
+                    for (Request request : batch) {
+                        if (!frames.add(ByteBuffer.wrap(request.payload()))) {
+                            flushFrames();
+                            frames.add(ByteBuffer.wrap(request.payload()));
+                        }
+                    }
+                    flushFrames();
+                } else {
+                    for (Request request : batch) {
+                        encode(request.payload());
+                    }
+                    flush();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Closing
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void encode(byte[] payload) throws IOException {
+        int needed = payload.length + 1;
+        if (writeBuffer.remaining() < needed) {
+            flush();
+        }
+        if (writeBuffer.remaining() < needed) {
+            // Larger than the whole buffer: send it on its own
+            ByteBuffer large = ByteBuffer.allocate(needed);
+            large.put(payload).put((byte) '\n');
+            writeFully(large.flip());
+            return;
+        }
+        writeBuffer.put(payload).put((byte) '\n');
+    }
+
+    private void flush() throws IOException {
+        writeFully(writeBuffer.flip());
+        writeBuffer.clear();
+    }
+
+    private void flushFrames() throws IOException {
+        while (!frames.flush(channel)) {
+            Thread.onSpinWait(); // A blocking channel writes nothing only when the socket buffer is momentarily full
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Responses come back in request order, so each one completes the oldest outstanding request
+    private void readLoop() {
+        ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        try {
+            while (channel.read(in) >= 0) {
+                in.flip();
+                ByteBuffer response;
+                while ((response = framed ? decoder.next(in) : nextLine(in)) != null) {
+                    Request request = awaitingResponse.poll();
+                    if (request == null) {
+                        throw new ProtocolException("response without a request");
+                    }
+                    inFlightSlots.release();
+                    request.response().complete(StandardCharsets.UTF_8.decode(response).toString());
+                }
+                in.compact();
+                if (framed ? decoder.pending() > in.capacity() : !in.hasRemaining()) {
+                    // A response bigger than the buffer: grow it
+                    ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(decoder.pending(), in.capacity() * 2));
+                    in = larger.put(in.flip());
+                }
+            }
+            throw new EOFException("server closed the connection");
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // Returns the next line without its '\n' (or trailing '\r'), or null if no complete line is buffered
+    private static ByteBuffer nextLine(ByteBuffer in) {
+        for (int i = in.position(); i < in.limit(); i++) {
+            if (in.get(i) == '\n') {
+                int end = i > in.position() && in.get(i - 1) == '\r' ? i - 1 : i;
+                ByteBuffer line = in.slice(in.position(), end - in.position());
+                in.position(i + 1);
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+            // Wake every sender blocked on a slot; they will see the failure
+            inFlightSlots.release(Integer.MAX_VALUE / 2);
+        }
+        Request request;
+        while ((request = awaitingResponse.poll()) != null) {
+            request.response().completeExceptionally(e);
+        }
+        while ((request = outgoing.poll()) != null) {
+            request.response().completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.interrupt();
+        channel.close();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Fans requests out over several pipelined connections, round-robin
+    public static class Pool implements Closeable {
+        private final PipelinedTCPClient[] connections;
+        private final AtomicInteger next = new AtomicInteger();
+
+        public Pool(String host, int port, int size, boolean framed, int maxInFlightPerConnection) throws IOException {
+            connections = new PipelinedTCPClient[size];
+            for (int i = 0; i < size; i++) {
+                connections[i] = new PipelinedTCPClient(host, port, framed, maxInFlightPerConnection);
+            }
+        }
+
+        public CompletableFuture<String> send(String request) throws InterruptedException {
+            int index = Math.floorMod(next.getAndIncrement(), connections.length);
+            return connections[index].send(request);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (PipelinedTCPClient connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    // Load test: sends 'requests' sentences over 'connections' connections and reports throughput and latency
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6789;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int requests = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+        boolean framed = args.length > 4 && "framed".equals(args[4]);
+
+        try (Pool pool = new Pool(host, port, connections, framed, 1024)) {
+            long[] latencies = new long[requests];
+            CountDownLatch done = new CountDownLatch(requests);
+            AtomicInteger errors = new AtomicInteger();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int id = i;
+                String sentence = "request number " + i;
+                long sent = System.nanoTime();
+                pool.send(sentence).whenComplete((response, error) -> {
+                    latencies[id] = System.nanoTime() - sent;
+                    if (error != null || !response.equals(sentence.toUpperCase())) {
+                        errors.incrementAndGet();
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+
+            java.util.Arrays.sort(latencies);
+            System.out.printf("%d requests over %d connection(s) in %d ms: %.0f req/s, %d errors%n",
+                    requests, connections, elapsed / 1_000_000, requests * 1e9 / elapsed, errors.get());
+            System.out.printf("latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                    latencies[requests / 2] / 1e3, latencies[(int) (requests * 0.99)] / 1e3, latencies[requests - 1] / 1e3);
+        }
+    }
+}
+*/
+
 ### UDP Communication
 
 UDP (User Datagram Protocol) is a connectionless protocol that allows sending packets (datagrams) without establishing a connection. Here's how you can implement simple UDP communication:
@@ -136,6 +1012,247 @@ public class UDPClient {
 }
 */
 
+#### Example Pooled UDP Server (Java)
+
+`UDPServer` creates a new `DatagramPacket`, a `String` and a `byte[]` for every datagram it echoes. At high packet rates that garbage, rather than the network, becomes the bottleneck. The version below uses a non-blocking `DatagramChannel`, takes its direct `ByteBuffer`s from a small pool, uppercases the ASCII letters in place (other bytes are echoed unchanged), and on every wakeup drains up to a batch of datagrams before sending the replies back, so the steady state allocates nothing.
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+
+public class PooledUDPServer {
+    static final int MAX_DATAGRAM = 2048; // Larger datagrams are truncated, as with a 2048-byte DatagramPacket
+    static final int BATCH = 64; // Datagrams drained per wakeup
+
+    // Fixed set of direct buffers carved out of one slab; used by a single thread
+    static class BufferPool {
+        private final ArrayDeque<ByteBuffer> free;
+
+        BufferPool(int count, int size) {
+            free = new ArrayDeque<>(count);
+            ByteBuffer slab = ByteBuffer.allocateDirect(count * size);
+            for (int i = 0; i < count; i++) {
+                slab.limit((i + 1) * size).position(i * size);
+                free.push(slab.slice());
+            }
+        }
+
+        ByteBuffer acquire() {
+            ByteBuffer buffer = free.pop();
+            buffer.clear();
+            return buffer;
+        }
+
+        void release(ByteBuffer buffer) {
+            free.push(buffer);
+        }
+    }
+
+    // Receive/uppercase/send loop for one channel
+    static class EchoLoop implements Runnable {
+        private final DatagramChannel channel;
+        private final Selector selector;
+        private final BufferPool pool = new BufferPool(BATCH, MAX_DATAGRAM);
+        private final ByteBuffer[] batch = new ByteBuffer[BATCH];
+        private final SocketAddress[] senders = new SocketAddress[BATCH];
+
+        // Written only by the loop thread, once per batch; read by whoever reports them
+        volatile long packets;
+        volatile long bytes;
+        volatile long drops;
+
+        EchoLoop(DatagramChannel channel) throws IOException {
+            this.channel = channel;
+            this.selector = Selector.open();
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    // Only sleep in select() once the socket has been drained
+                    if (drainBatch() == 0) {
+                        selector.select();
+                        selector.selectedKeys().clear();
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("UDP server error: " + e.getMessage());
+            }
+        }
+
+        // Receives up to BATCH datagrams, then answers them all
+        private int drainBatch() throws IOException {
+            int count = 0;
+            while (count < BATCH) {
+                ByteBuffer buffer = pool.acquire();
+                SocketAddress sender = channel.receive(buffer);
+                if (sender == null) {
+                    pool.release(buffer);
+                    break;
+                }
+                buffer.flip();
+                batch[count] = buffer;
+                senders[count] = sender;
+                count++;
+            }
+
+            long batchBytes = 0;
+            int batchDrops = 0;
+            for (int i = 0; i < count; i++) {
+                ByteBuffer buffer = batch[i];
+                batchBytes += buffer.remaining();
+                toUpperCaseAscii(buffer);
+                // A full send buffer drops the reply, which is ordinary UDP behaviour
+                if (channel.send(buffer, senders[i]) == 0) {
+                    batchDrops++;
+                }
+                pool.release(buffer);
+                batch[i] = null;
+                senders[i] = null;
+            }
+            if (count > 0) {
+                packets += count;
+                bytes += batchBytes;
+                drops += batchDrops;
+            }
+            return count;
+        }
+    }
+
+    static void toUpperCaseAscii(ByteBuffer buffer) {
+        for (int i = buffer.position(), limit = buffer.limit(); i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b >= 'a' && b <= 'z') {
+                buffer.put(i, (byte) (b - 32));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9876;
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+
+        System.out.println("Pooled UDP Server listening on port " + port);
+        new EchoLoop(channel).run();
+    }
+}
+*/
+
+#### Example Sharded UDP Server (Java)
+
+A single `EchoLoop` still runs on one core. On Linux, `SO_REUSEPORT` lets several sockets bind the same port, and the kernel hashes each flow (source address and port) to one of them. The server below opens one channel per worker, runs a `PooledUDPServer.EchoLoop` on each, and prints per-shard packet, byte and drop counters every few seconds. `UDPLoadGenerator` drives it from many source ports at once so the load is spread over all shards.
+
+/*
+import java.io.*;
+import java.net.*;
+import java.nio.channels.DatagramChannel;
+
+public class ShardedUDPServer {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9876;
+        int shards = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long reportMillis = 5000;
+
+        PooledUDPServer.EchoLoop[] loops = new PooledUDPServer.EchoLoop[shards];
+        for (int i = 0; i < shards; i++) {
+            DatagramChannel channel = DatagramChannel.open();
+            if (!channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                throw new IOException("SO_REUSEPORT is not supported on this platform");
+            }
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 << 20);
+            channel.bind(new InetSocketAddress(port));
+
+            loops[i] = new PooledUDPServer.EchoLoop(channel);
+            Thread thread = new Thread(loops[i], "udp-shard-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        System.out.println("Sharded UDP Server listening on port " + port + " with " + shards + " shard(s)");
+
+        long[] lastPackets = new long[shards];
+        while (true) {
+            Thread.sleep(reportMillis);
+            long total = 0;
+            StringBuilder report = new StringBuilder();
+            for (int i = 0; i < shards; i++) {
+                long packets = loops[i].packets;
+                long rate = (packets - lastPackets[i]) * 1000 / reportMillis;
+                lastPackets[i] = packets;
+                total += rate;
+                report.append(String.format("  shard %d: %d pkt/s, %d packets, %d bytes, %d drops%n",
+                        i, rate, packets, loops[i].bytes, loops[i].drops));
+            }
+            System.out.print(report);
+            System.out.println("  total: " + total + " pkt/s");
+        }
+    }
+}
+*/
+
+#### Example UDP Load Generator (Java)
+
+/*
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class UDPLoadGenerator {
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 9876;
+        int flows = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int window = 32; // Datagrams in flight per flow
+
+        InetAddress address = InetAddress.getByName(host);
+        LongAdder replies = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        Thread[] threads = new Thread[flows];
+        for (int f = 0; f < flows; f++) {
+            threads[f] = new Thread(() -> {
+                // Each flow has its own source port, so the kernel may pick a different shard for it
+                try (DatagramSocket socket = new DatagramSocket()) {
+                    socket.setSoTimeout(200);
+                    byte[] payload = "hello, sharded udp server".getBytes();
+                    DatagramPacket request = new DatagramPacket(payload, payload.length, address, port);
+                    DatagramPacket reply = new DatagramPacket(new byte[PooledUDPServer.MAX_DATAGRAM], PooledUDPServer.MAX_DATAGRAM);
+                    while (System.nanoTime() < deadline) {
+                        for (int i = 0; i < window; i++) {
+                            socket.send(request);
+                        }
+                        try {
+                            for (int i = 0; i < window; i++) {
+                                reply.setLength(PooledUDPServer.MAX_DATAGRAM);
+                                socket.receive(reply);
+                                replies.increment();
+                            }
+                        } catch (SocketTimeoutException e) {
+                            // Some replies were lost; start the next window
+                        }
+                    }
+                } catch (IOException e) {
+                    System.out.println("Flow error: " + e.getMessage());
+                }
+            });
+            threads[f].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println(flows + " flow(s): " + replies.sum() / seconds + " replies/s");
+    }
+}
+*/
+
 ### Running the Programs
 
 To run these programs, compile each `.java` file and start the server first, then the client. For example:
@@ -147,6 +1264,12 @@ To run these programs, compile each `.java` file and start the server first, the
    java TCPServer
    ```
    (Or `javac UDPServer.java` and `java UDPServer` for UDP.)
+   (Or `javac PooledUDPServer.java` and `java PooledUDPServer [port]` for the pooled UDP server.)
+   (Or `javac PooledUDPServer.java ShardedUDPServer.java` and `java ShardedUDPServer [port] [shards]` for the sharded UDP server, then `java UDPLoadGenerator [host] [port] [flows] [seconds]` to load it.)
+   (Or `javac NioTCPServer.java` and `java NioTCPServer [port] [reactors] [framed]` for the NIO server.)
+   (Or `javac VirtualThreadTCPServer.java` and `java VirtualThreadTCPServer [port] [maxConnections] [framed]` for the virtual-thread server; needs Java 21.)
+   (Add `FrameCodec.java` to the `javac` command for any of the TCP programs, and pass `framed` to both client and server, e.g. `java TCPServer framed` and `java TCPClient framed`, to use length-prefixed frames.)
+   (Or `javac FrameCodec.java PipelinedTCPClient.java` and `java PipelinedTCPClient [host] [port] [connections] [requests] [framed]` to load-test `NioTCPServer` or `VirtualThreadTCPServer` with pipelined requests.)
 3. In the other, compile and run the client using:
    ```
    javac TCPClient.java
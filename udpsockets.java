@@ -28,10 +28,12 @@ public class UDPPeerChat {
 
             // Thread to receive messages
             Thread receiveThread = new Thread(() -> {
+                // One buffer and packet are reused for every message
+                byte[] receiveBuffer = new byte[1024];
+                DatagramPacket receivePacket = new DatagramPacket(receiveBuffer, receiveBuffer.length);
                 try {
                     while (true) {
-                        byte[] receiveBuffer = new byte[1024];
-                        DatagramPacket receivePacket = new DatagramPacket(receiveBuffer, receiveBuffer.length);
+                        receivePacket.setLength(receiveBuffer.length);
                         socket.receive(receivePacket);
                         String receivedMessage = new String(receivePacket.getData(), 0, receivePacket.getLength());
                         System.out.println("Peer says: " + receivedMessage);